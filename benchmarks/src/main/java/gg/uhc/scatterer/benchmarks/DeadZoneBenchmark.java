@@ -0,0 +1,76 @@
+package gg.uhc.scatterer.benchmarks;
+
+import gg.uhc.scatterer.search.CircularZone;
+import gg.uhc.scatterer.search.DeadZoneStore;
+import gg.uhc.scatterer.search.GridDeadZoneStore;
+import gg.uhc.scatterer.search.ListDeadZoneStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// isAllowed for the linear list against the grid with the zones already placed
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class DeadZoneBenchmark {
+
+    protected static final int POINTS = 1024;
+    protected static final double RADIUS = 2000;
+
+    @Param({"LIST", "GRID"})
+    public String store;
+
+    @Param({"10", "100", "1000"})
+    public int zones;
+
+    @Param({"25", "100"})
+    public double min;
+
+    protected DeadZoneStore deadZones;
+    protected double[] xs = new double[POINTS];
+    protected double[] zs = new double[POINTS];
+
+    @Setup
+    public void setup() {
+        deadZones = "GRID".equals(store) ? new GridDeadZoneStore(Math.max(min, 32)) : new ListDeadZoneStore();
+
+        Random random = new Random(0);
+        for (int i = 0; i < zones; i++) {
+            deadZones.add(new CircularZone(point(random), point(random), min));
+        }
+
+        for (int i = 0; i < POINTS; i++) {
+            xs[i] = point(random);
+            zs[i] = point(random);
+        }
+    }
+
+    protected double point(Random random) {
+        return (random.nextDouble() * 2 - 1) * RADIUS;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public int isAllowed() {
+        int allowed = 0;
+        for (int i = 0; i < POINTS; i++) {
+            if (deadZones.isAllowed(xs[i], zs[i])) allowed++;
+        }
+        return allowed;
+    }
+}
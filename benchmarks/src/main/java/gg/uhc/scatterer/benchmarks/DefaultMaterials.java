@@ -0,0 +1,26 @@
+package gg.uhc.scatterer.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import gg.uhc.scatterer.search.MaterialTable;
+import org.bukkit.Material;
+
+import java.util.List;
+
+// same lists as the default config.yml
+public class DefaultMaterials {
+
+    public static final List<Material> ALLOWED = ImmutableList.of(
+            Material.DIRT, Material.LEAVES, Material.LEAVES_2, Material.SAND, Material.STONE, Material.GRAVEL,
+            Material.SNOW, Material.SNOW_BLOCK, Material.ICE, Material.GRASS, Material.LOG, Material.LOG_2,
+            Material.DOUBLE_PLANT, Material.DEAD_BUSH, Material.CROPS, Material.LONG_GRASS, Material.SANDSTONE,
+            Material.VINE, Material.WATER_LILY, Material.WHEAT, Material.STAINED_CLAY
+    );
+
+    public static final List<Material> REQUIRE_AIR_ABOVE = ImmutableList.of(Material.LOG, Material.LOG_2);
+
+    public static final List<Material> NO_LIQUID_BELOW = ImmutableList.of(Material.ICE, Material.WATER_LILY);
+
+    public static MaterialTable createTable() {
+        return new MaterialTable(ALLOWED, REQUIRE_AIR_ABOVE, NO_LIQUID_BELOW);
+    }
+}
@@ -0,0 +1,18 @@
+package gg.uhc.scatterer.benchmarks;
+
+import gg.uhc.scatterer.teleportation.ChunkPreparer;
+import gg.uhc.scatterer.teleportation.ChunkRetention;
+import org.bukkit.plugin.Plugin;
+
+// ChunkPreparer with the load task run by hand, one call per server tick
+public class DirectChunkPreparer extends ChunkPreparer {
+
+    public DirectChunkPreparer(Plugin plugin, int chunksPerTick) {
+        // released straight after teleporting, there's no scheduler to wait with
+        super(plugin, new ChunkRetention(plugin, 0), chunksPerTick);
+    }
+
+    public void tick() {
+        if (loadTask != null) loadTask.run();
+    }
+}
@@ -0,0 +1,40 @@
+package gg.uhc.scatterer.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import gg.uhc.scatterer.search.CandidateGenerator;
+import gg.uhc.scatterer.search.DeadZoneStore;
+import gg.uhc.scatterer.search.LocationSearch;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+
+// LocationSearch with the check task run back to back on the calling thread instead of once
+// per server tick, measures the search itself rather than the tick rate
+public class DirectLocationSearch extends LocationSearch {
+
+    public DirectLocationSearch(Plugin plugin, ExecutorService workers, World world, CandidateGenerator generator, DeadZoneStore initialZones, DeadZoneStore placedZones) {
+        super(plugin, workers, world, generator, initialZones, placedZones);
+    }
+
+    @Override
+    protected void scheduleChecks() {}
+
+    // returns an empty list if the search ran out of attempts
+    public List<Location> runToCompletion(int count) throws InterruptedException {
+        start(count);
+
+        while (!future.isDone()) {
+            runChecks();
+        }
+
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            return ImmutableList.of();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package gg.uhc.scatterer.benchmarks;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
+import gg.uhc.scatterer.scheduling.TickMonitor;
+import gg.uhc.scatterer.search.ColumnCacheStore;
+import gg.uhc.scatterer.search.MaterialTable;
+import gg.uhc.scatterer.teleportation.Teleporter;
+import org.bukkit.Material;
+import org.bukkit.plugin.Plugin;
+
+// Teleporter with its task and the chunk loading run by hand, one call per server tick
+public class DirectTeleporter extends Teleporter {
+
+    protected final DirectChunkPreparer preparer;
+
+    public DirectTeleporter(DirectChunkPreparer preparer, Plugin plugin, int lookahead, int teleportsPerTick) {
+        super(preparer, plugin, new TickMonitor(1), lookahead, TickMonitor.TICK_MILLIS, teleportsPerTick, new MaterialTable(ImmutableSet.<Material>of(), ImmutableSet.<Material>of(), ImmutableSet.<Material>of()), Optional.<ColumnCacheStore>absent());
+        this.preparer = preparer;
+    }
+
+    // returns how many ticks the scatter took
+    public int runToCompletion() {
+        int ticks = 0;
+
+        while (teleportTask.isPresent()) {
+            preparer.tick();
+            teleportTask.get().run();
+            ticks++;
+        }
+
+        return ticks;
+    }
+}
@@ -0,0 +1,28 @@
+package gg.uhc.scatterer.benchmarks;
+
+import com.google.common.io.Files;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+
+// a plugin with a throwaway data folder for anything written while benchmarking
+public class FakePlugin {
+
+    protected final File dataFolder = Files.createTempDir();
+
+    public static Plugin create() {
+        return Fakes.of(Plugin.class, new FakePlugin());
+    }
+
+    public File getDataFolder() {
+        return dataFolder;
+    }
+
+    public String getName() {
+        return "Scatterer";
+    }
+
+    public boolean isEnabled() {
+        return true;
+    }
+}
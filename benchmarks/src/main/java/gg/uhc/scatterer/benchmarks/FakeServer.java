@@ -0,0 +1,33 @@
+package gg.uhc.scatterer.benchmarks;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+
+import java.util.logging.Logger;
+
+// The parts of the server the plugin touches outside of a running scatter. The scheduler is
+// a do nothing fake, benchmarks drive the tasks themselves
+public class FakeServer {
+
+    public static final int VIEW_DISTANCE = 10;
+
+    protected static final Logger LOGGER = Logger.getLogger("FakeServer");
+
+    public static synchronized void install() {
+        if (Bukkit.getServer() != null) return;
+
+        Bukkit.setServer(Fakes.of(Server.class, new FakeServer()));
+    }
+
+    public int getViewDistance() {
+        return VIEW_DISTANCE;
+    }
+
+    public boolean isPrimaryThread() {
+        return true;
+    }
+
+    public Logger getLogger() {
+        return LOGGER;
+    }
+}
@@ -0,0 +1,155 @@
+package gg.uhc.scatterer.benchmarks;
+
+import com.google.common.collect.Sets;
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Biome;
+
+import java.util.Set;
+import java.util.UUID;
+
+// Endless generated terrain held in nothing but a couple of formulas. Rolling hills with
+// water in the low parts and the odd tree, roughly half the columns are safe with the
+// default config so searches see a realistic mix of hits and misses
+public class FakeWorld {
+
+    protected static final int SEA_LEVEL = 62;
+
+    protected static final int AIR = Material.AIR.getId();
+    protected static final int DIRT = Material.DIRT.getId();
+    protected static final int GRASS = Material.GRASS.getId();
+    protected static final int SAND = Material.SAND.getId();
+    protected static final int WATER = Material.STATIONARY_WATER.getId();
+    protected static final int LEAVES = Material.LEAVES.getId();
+
+    protected final String name;
+    protected final UUID uid;
+    protected final Set<Long> loaded = Sets.newHashSet();
+
+    protected FakeWorld(String name) {
+        this.name = name;
+        this.uid = UUID.nameUUIDFromBytes(name.getBytes());
+    }
+
+    public static World create(String name) {
+        return Fakes.of(World.class, new FakeWorld(name));
+    }
+
+    // the fake world is found again through its handler, keeps the World type everywhere else
+    public static void unloadAll(World world) {
+        ((FakeWorld) Fakes.getDelegate(world)).loaded.clear();
+    }
+
+    protected static long key(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    protected int surface(int x, int z) {
+        return SEA_LEVEL + (int) (12 * Math.sin(x / 41D) * Math.cos(z / 67D));
+    }
+
+    protected boolean isTree(int x, int z) {
+        int hash = x * 73428767 ^ z * 912931;
+        return (hash >>> 16) % 20 == 0;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public UUID getUID() {
+        return uid;
+    }
+
+    public int getHighestBlockYAt(int x, int z) {
+        return surface(x, z) + 1;
+    }
+
+    public Biome getBiome(int x, int z) {
+        return surface(x, z) < SEA_LEVEL ? Biome.OCEAN : Biome.PLAINS;
+    }
+
+    public int getBlockTypeIdAt(int x, int y, int z) {
+        int surface = surface(x, z);
+
+        if (y > surface) return AIR;
+
+        if (surface < SEA_LEVEL) return y == surface ? WATER : SAND;
+
+        if (y < surface) return DIRT;
+
+        return isTree(x, z) ? LEAVES : GRASS;
+    }
+
+    public boolean isChunkLoaded(int x, int z) {
+        return loaded.contains(key(x, z));
+    }
+
+    public boolean loadChunk(int x, int z, boolean generate) {
+        loaded.add(key(x, z));
+        return true;
+    }
+
+    public boolean unloadChunkRequest(int x, int z) {
+        loaded.remove(key(x, z));
+        return true;
+    }
+
+    public int getMaxHeight() {
+        return 256;
+    }
+
+    public Chunk getChunkAt(int x, int z) {
+        loaded.add(key(x, z));
+        return Fakes.of(Chunk.class, new FakeChunk(x, z));
+    }
+
+    public class FakeChunk {
+
+        protected final int chunkX;
+        protected final int chunkZ;
+
+        protected FakeChunk(int chunkX, int chunkZ) {
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+        }
+
+        public int getX() {
+            return chunkX;
+        }
+
+        public int getZ() {
+            return chunkZ;
+        }
+
+        public ChunkSnapshot getChunkSnapshot(boolean includeMaxBlockY, boolean includeBiome, boolean includeBiomeTempRain) {
+            return Fakes.of(ChunkSnapshot.class, new FakeSnapshot(chunkX << 4, chunkZ << 4));
+        }
+    }
+
+    // reads the same formulas as the world, nothing is copied
+    public class FakeSnapshot {
+
+        protected final int minX;
+        protected final int minZ;
+
+        protected FakeSnapshot(int minX, int minZ) {
+            this.minX = minX;
+            this.minZ = minZ;
+        }
+
+        public int getHighestBlockYAt(int x, int z) {
+            return FakeWorld.this.getHighestBlockYAt(minX + x, minZ + z);
+        }
+
+        public int getBlockTypeId(int x, int y, int z) {
+            return getBlockTypeIdAt(minX + x, y, minZ + z);
+        }
+
+        public Biome getBiome(int x, int z) {
+            return FakeWorld.this.getBiome(minX + x, minZ + z);
+        }
+    }
+}
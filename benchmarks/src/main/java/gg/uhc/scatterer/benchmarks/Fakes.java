@@ -0,0 +1,104 @@
+package gg.uhc.scatterer.benchmarks;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+
+// Builds interface implementations out of plain objects. A call is forwarded to the public
+// method on the delegate with the same name and parameters, anything the delegate doesn't
+// have returns a default value instead (0, false, an empty string or another fake) so the
+// bukkit api can be used without a server
+public class Fakes {
+
+    protected static final Map<Class<?>, Object> PRIMITIVE_DEFAULTS = ImmutableMap.<Class<?>, Object>builder()
+            .put(boolean.class, false)
+            .put(byte.class, (byte) 0)
+            .put(short.class, (short) 0)
+            .put(char.class, (char) 0)
+            .put(int.class, 0)
+            .put(long.class, 0L)
+            .put(float.class, 0F)
+            .put(double.class, 0D)
+            .build();
+
+    public static <T> T of(Class<T> type) {
+        return of(type, null);
+    }
+
+    public static <T> T of(Class<T> type, Object delegate) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, new Handler(delegate)));
+    }
+
+    public static Object getDelegate(Object fake) {
+        return ((Handler) Proxy.getInvocationHandler(fake)).delegate;
+    }
+
+    static class Handler implements InvocationHandler {
+
+        protected final Object delegate;
+        // null values mean the delegate doesn't have the method
+        protected final Map<Method, Method> resolved = Maps.newConcurrentMap();
+        protected final Map<Method, Object> fakes = Maps.newConcurrentMap();
+
+        Handler(Object delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Method target = resolve(method);
+
+            if (target != null) return target.invoke(delegate, args);
+
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Fake" + method.getDeclaringClass().getSimpleName();
+            }
+
+            return getDefault(method);
+        }
+
+        protected Method resolve(Method method) {
+            if (delegate == null) return null;
+
+            if (!resolved.containsKey(method)) {
+                Method target;
+                try {
+                    target = delegate.getClass().getMethod(method.getName(), method.getParameterTypes());
+                } catch (NoSuchMethodException e) {
+                    target = method;
+                }
+                resolved.put(method, target);
+            }
+
+            Method target = resolved.get(method);
+            return target == method ? null : target;
+        }
+
+        protected Object getDefault(Method method) {
+            Class<?> type = method.getReturnType();
+
+            if (type.isPrimitive()) return PRIMITIVE_DEFAULTS.get(type);
+
+            if (type == String.class) return "";
+
+            if (!type.isInterface()) return null;
+
+            // always hand back the same fake so things like getScheduler() behave
+            Object fake = fakes.get(method);
+            if (fake == null) {
+                fake = of(type);
+                fakes.put(method, fake);
+            }
+            return fake;
+        }
+    }
+}
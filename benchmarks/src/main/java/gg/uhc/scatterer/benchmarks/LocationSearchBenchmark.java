@@ -0,0 +1,118 @@
+package gg.uhc.scatterer.benchmarks;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import gg.uhc.scatterer.ScatterStyle;
+import gg.uhc.scatterer.search.ColumnCache;
+import gg.uhc.scatterer.search.GridDeadZoneStore;
+import gg.uhc.scatterer.search.ListDeadZoneStore;
+import gg.uhc.scatterer.search.MaterialTable;
+import gg.uhc.scatterer.search.SnapshotStore;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// A whole async search from start to the last location, same setup as /sct -async
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class LocationSearchBenchmark {
+
+    protected static final int MIN_GRID_CELL_SIZE = 32;
+
+    @Param({"CIRCULAR", "SQUARE", "SPIRAL", "JITTERED_GRID", "POISSON_DISK"})
+    public ScatterStyle style;
+
+    @Param({"500", "1500"})
+    public double radius;
+
+    @Param({"20", "100"})
+    public int count;
+
+    @Param({"0", "25"})
+    public double min;
+
+    @Param({"2"})
+    public int threads;
+
+    // the fake world's columns cost next to nothing to read, this shows what the lookup itself
+    // costs. The cache is kept between searches like it is for repeated scatters on a server
+    @Param({"false", "true"})
+    public boolean columnCache;
+
+    // block checks on the workers, the check loop only captures snapshots and checks placed zones.
+    // Takes priority over the column cache like it does for /sct -snapshots
+    @Param({"false", "true"})
+    public boolean snapshots;
+
+    protected Plugin plugin;
+    protected World world;
+    protected ExecutorService workers;
+    protected MaterialTable materials;
+    protected ColumnCache columns;
+    protected long seed = 0;
+
+    @Setup
+    public void setup() {
+        FakeServer.install();
+        plugin = FakePlugin.create();
+        world = FakeWorld.create("search");
+        materials = DefaultMaterials.createTable();
+        columns = new ColumnCache(world.getUID(), 0, 4096);
+        workers = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setDaemon(true).build());
+    }
+
+    @TearDown
+    public void tearDown() {
+        workers.shutdownNow();
+    }
+
+    @Benchmark
+    public List<Location> search() throws InterruptedException {
+        // new seed each time, always searching the same locations would only measure one layout
+        seed++;
+
+        DirectLocationSearch search = new DirectLocationSearch(
+                plugin,
+                workers,
+                world,
+                style.candidates(0, 0, radius, count, seed),
+                new ListDeadZoneStore(),
+                new GridDeadZoneStore(Math.max(min, MIN_GRID_CELL_SIZE))
+        );
+        search.setSeed(seed);
+        search.setMinRadius(min);
+        search.setMaxAttempts(250);
+        search.setReattempts(1);
+        search.setChecksPerTick(40);
+        search.setThreads(threads);
+        search.setMaterials(materials);
+
+        if (snapshots) {
+            search.setSnapshots(new SnapshotStore(world, 20, 1024));
+        } else if (columnCache) {
+            search.setColumnCache(columns);
+        }
+
+        return search.runToCompletion(count);
+    }
+}
@@ -0,0 +1,85 @@
+package gg.uhc.scatterer.benchmarks;
+
+import com.google.common.collect.Sets;
+import gg.uhc.scatterer.search.MaterialTable;
+import org.bukkit.Material;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// the ordinal table against the hash set it replaced, plus the full safety check
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class MaterialLookupBenchmark {
+
+    protected static final int LOOKUPS = 1024;
+    protected static final Material[] MATERIALS = Material.values();
+
+    protected MaterialTable table;
+    protected Set<Material> set;
+    protected Material[] tops = new Material[LOOKUPS];
+    protected Material[] aboves = new Material[LOOKUPS];
+    protected Material[] belows = new Material[LOOKUPS];
+
+    @Setup
+    public void setup() {
+        table = DefaultMaterials.createTable();
+        set = Sets.newHashSet(DefaultMaterials.ALLOWED);
+
+        // half of the tops are allowed, the rest are anything
+        Random random = new Random(0);
+        for (int i = 0; i < LOOKUPS; i++) {
+            tops[i] = random.nextBoolean()
+                    ? DefaultMaterials.ALLOWED.get(random.nextInt(DefaultMaterials.ALLOWED.size()))
+                    : MATERIALS[random.nextInt(MATERIALS.length)];
+            aboves[i] = random.nextInt(4) == 0 ? Material.LONG_GRASS : Material.AIR;
+            belows[i] = random.nextInt(4) == 0 ? Material.STATIONARY_WATER : Material.DIRT;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int hashSet() {
+        int allowed = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            if (set.contains(tops[i])) allowed++;
+        }
+        return allowed;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int table() {
+        int allowed = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            if (table.isAllowed(tops[i])) allowed++;
+        }
+        return allowed;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int tableIsSafe() {
+        int safe = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            if (table.isSafe(tops[i], aboves[i], belows[i])) safe++;
+        }
+        return safe;
+    }
+}
@@ -0,0 +1,71 @@
+package gg.uhc.scatterer.benchmarks;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import gg.uhc.scatterer.teleportation.HilbertOrder;
+import org.bukkit.Location;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+// Not a JMH benchmark, counts instead of timing. Splits the same random locations into sets in the
+// order they were found and in Hilbert order, then counts the chunks each set needs (the view
+// distance square around every location) that the set before it didn't already have loaded.
+//
+// java -cp target/benchmarks.jar gg.uhc.scatterer.benchmarks.SetOrderComparison [count] [radius] [set size] [view distance] [seed]
+public class SetOrderComparison {
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int radius = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int setSize = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int viewDistance = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 1;
+
+        Random random = new Random(seed);
+        List<Location> found = Lists.newArrayListWithCapacity(count);
+        for (int i = 0; i < count; i++) {
+            found.add(new Location(null, random.nextInt(radius * 2) - radius, 64, random.nextInt(radius * 2) - radius));
+        }
+
+        List<Location> hilbert = Lists.newArrayListWithCapacity(count);
+        for (int index : HilbertOrder.order(found)) {
+            hilbert.add(found.get(index));
+        }
+
+        System.out.println(String.format("%d locations, radius %d, sets of %d, view distance %d, seed %d", count, radius, setSize, viewDistance, seed));
+        System.out.println(String.format("found order:   %d chunk loads", countLoads(found, setSize, viewDistance)));
+        System.out.println(String.format("hilbert order: %d chunk loads", countLoads(hilbert, setSize, viewDistance)));
+    }
+
+    protected static int countLoads(List<Location> locations, int setSize, int viewDistance) {
+        Set<Long> previous = Sets.newHashSet();
+        Set<Long> current;
+        int loads = 0;
+        int chunkX, chunkZ;
+
+        for (List<Location> set : Lists.partition(locations, setSize)) {
+            current = Sets.newHashSet();
+
+            for (Location location : set) {
+                chunkX = location.getBlockX() >> 4;
+                chunkZ = location.getBlockZ() >> 4;
+
+                for (int x = chunkX - viewDistance; x <= chunkX + viewDistance; x++) {
+                    for (int z = chunkZ - viewDistance; z <= chunkZ + viewDistance; z++) {
+                        current.add(((long) x << 32) | (z & 0xFFFFFFFFL));
+                    }
+                }
+            }
+
+            for (Long chunk : current) {
+                if (!previous.contains(chunk)) loads++;
+            }
+
+            previous = current;
+        }
+
+        return loads;
+    }
+}
@@ -0,0 +1,120 @@
+package gg.uhc.scatterer.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import gg.uhc.scatterer.Scatterable;
+import gg.uhc.scatterer.metrics.ScatterMetrics;
+import gg.uhc.scatterer.teleportation.Teleporter;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Splitting a scatter into sets, queueing their chunks and running every set through with
+// the chunk loading and delays between sets done back to back
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TeleporterBenchmark {
+
+    @Param({"100", "500"})
+    public int count;
+
+    @Param({"1000", "3000"})
+    public double radius;
+
+    @Param({"5", "20"})
+    public int setSize;
+
+    @Param({"0", "2"})
+    public int lookahead;
+
+    @Param({"1"})
+    public int ticksPer;
+
+    @Param({"20"})
+    public int teleportsPerTick;
+
+    protected World world;
+    protected DirectTeleporter teleporter;
+    protected List<Location> locations;
+    protected List<Scatterable> scatterables;
+    protected int teleported = 0;
+
+    protected final Teleporter.Callback callback = new Teleporter.Callback() {
+        @Override
+        public void onSetTeleported(List<Scatterable> scatterables, List<Location> locations) {}
+
+        @Override
+        public void onUpdate(int completed, int total) {}
+
+        @Override
+        public void onComplete() {}
+
+        @Override
+        public void onFailure(Throwable cause) {}
+    };
+
+    @Setup
+    public void setup() {
+        FakeServer.install();
+        Plugin plugin = FakePlugin.create();
+        world = FakeWorld.create("teleport");
+        teleporter = new DirectTeleporter(new DirectChunkPreparer(plugin, 40), plugin, lookahead, teleportsPerTick);
+
+        Random random = new Random(0);
+        locations = Lists.newArrayListWithCapacity(count);
+        scatterables = Lists.newArrayListWithCapacity(count);
+        for (int i = 0; i < count; i++) {
+            final String id = "benchmark:" + i;
+            locations.add(new Location(world, (random.nextDouble() * 2 - 1) * radius, 64, (random.nextDouble() * 2 - 1) * radius));
+            scatterables.add(new Scatterable() {
+                @Override
+                public void teleport(Location location) {
+                    teleported++;
+                }
+
+                @Override
+                public List<Player> getPlayers() {
+                    return ImmutableList.of();
+                }
+
+                @Override
+                public void sendNotice(Location location) {}
+
+                @Override
+                public String getId() {
+                    return id;
+                }
+            });
+        }
+    }
+
+    @Benchmark
+    public int teleport() {
+        // every run starts from a world with nothing loaded
+        FakeWorld.unloadAll(world);
+
+        ScatterMetrics metrics = new ScatterMetrics(world.getName(), "NONE", 0, count, ScatterMetrics.Mode.POOL);
+        teleporter.teleport(world, locations, scatterables, setSize, ticksPer, false, true, 0, metrics, callback);
+        return teleporter.runToCompletion();
+    }
+}
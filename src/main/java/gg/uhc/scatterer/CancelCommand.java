@@ -0,0 +1,102 @@
+package gg.uhc.scatterer;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import gg.uhc.scatterer.teleportation.ScatterJob;
+import gg.uhc.scatterer.teleportation.Teleporter;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.World;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabExecutor;
+import org.bukkit.entity.Entity;
+
+import java.util.List;
+
+public class CancelCommand implements TabExecutor {
+
+    protected static final String ALL_FLAG = "-all";
+
+    protected static final String NOTHING_RUNNING = ChatColor.RED + "There are no scatters running";
+    protected static final String PICK_WORLD = ChatColor.RED + "Scatters are running in %s, choose one with /sct cancel <world> or cancel them all with /sct cancel -all";
+    protected static final String NOT_RUNNING = ChatColor.RED + "There is no scatter running in %s";
+    protected static final String CANCELLED = ChatColor.GOLD + "Cancelled the scatter in %s, anyone not teleported yet stays where they are";
+    protected static final String CANCELLED_ALL = ChatColor.GOLD + "Cancelled %d scatter/s, anyone not teleported yet stays where they are";
+
+    protected final Teleporter teleporter;
+
+    public CancelCommand(Teleporter teleporter) {
+        this.teleporter = teleporter;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        List<String> arguments = Lists.newArrayList(args);
+        boolean all = arguments.remove(ALL_FLAG);
+
+        List<String> worlds = getRunningWorlds();
+
+        if (worlds.isEmpty()) {
+            sender.sendMessage(NOTHING_RUNNING);
+            return true;
+        }
+
+        if (all) {
+            sender.sendMessage(String.format(CANCELLED_ALL, teleporter.cancelAll()));
+            return true;
+        }
+
+        // use the given world, the only running scatter or the sender's world in that order
+        String worldName;
+        if (!arguments.isEmpty()) {
+            worldName = arguments.get(0);
+        } else if (worlds.size() == 1) {
+            worldName = worlds.get(0);
+        } else if (sender instanceof Entity && worlds.contains(((Entity) sender).getWorld().getName())) {
+            worldName = ((Entity) sender).getWorld().getName();
+        } else {
+            sender.sendMessage(String.format(PICK_WORLD, worlds));
+            return true;
+        }
+
+        World world = Bukkit.getWorld(worldName);
+
+        if (world == null || !teleporter.isTeleporting(world)) {
+            sender.sendMessage(String.format(NOT_RUNNING, worldName));
+            return true;
+        }
+
+        teleporter.cancelTeleport(world);
+        sender.sendMessage(String.format(CANCELLED, worldName));
+        return true;
+    }
+
+    protected List<String> getRunningWorlds() {
+        List<String> worlds = Lists.newArrayList();
+
+        for (ScatterJob job : teleporter.getJobs()) {
+            worlds.add(job.getWorld().getName());
+        }
+
+        return worlds;
+    }
+
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        if (args.length != 1) return ImmutableList.of();
+
+        List<String> options = Lists.newArrayList();
+        for (String world : getRunningWorlds()) {
+            if (world.startsWith(args[0])) {
+                options.add(world);
+            }
+        }
+
+        if (ALL_FLAG.startsWith(args[0])) {
+            options.add(ALL_FLAG);
+        }
+
+        return options;
+    }
+}
@@ -0,0 +1,257 @@
+package gg.uhc.scatterer;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import gg.uhc.flagcommands.commands.OptionCommand;
+import gg.uhc.flagcommands.converters.DoubleConverter;
+import gg.uhc.flagcommands.converters.IntegerConverter;
+import gg.uhc.flagcommands.converters.WorldConverter;
+import gg.uhc.flagcommands.joptsimple.ArgumentAcceptingOptionSpec;
+import gg.uhc.flagcommands.joptsimple.OptionSet;
+import gg.uhc.flagcommands.joptsimple.OptionSpec;
+import gg.uhc.flagcommands.predicates.DoublePredicates;
+import gg.uhc.flagcommands.predicates.IntegerPredicates;
+import gg.uhc.flagcommands.tab.EnumTabComplete;
+import gg.uhc.flagcommands.tab.FixedValuesTabComplete;
+import gg.uhc.flagcommands.tab.WorldTabComplete;
+import gg.uhc.scatterer.conversion.EntityTypeConverter;
+import gg.uhc.scatterer.conversion.ScatterStyleConverter;
+import gg.uhc.scatterer.conversion.SeedConverter;
+import gg.uhc.scatterer.entities.EntityScatter;
+import gg.uhc.scatterer.search.ColumnCacheStore;
+import gg.uhc.scatterer.search.GridDeadZoneStore;
+import gg.uhc.scatterer.search.MaterialTable;
+import org.bukkit.ChatColor;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.plugin.Plugin;
+
+import java.util.List;
+import java.util.Random;
+
+public class EntityScatterCommand extends OptionCommand {
+
+    protected static final String STARTING = ChatColor.GOLD + "Searching for %d locations for %s";
+    protected static final String SEARCHED = ChatColor.GOLD + "Found %d locations, placing %s";
+    protected static final String PARTIAL = ChatColor.RED + "Only found %d of %d locations within the max attempts, placing %s there";
+    protected static final String FINISHED = ChatColor.GOLD + "Placed %d %s in %dms, %d chunks were loaded";
+    protected static final String ALREADY_RUNNING = ChatColor.RED + "An entity scatter is already running, please wait for it to finish";
+    protected static final String NOT_SPAWNABLE = ChatColor.RED + "%s can't be spawned, use -existing to move the ones already in the world";
+    protected static final String NONE_EXISTING = ChatColor.RED + "There are no %s in loaded chunks of %s";
+    protected static final String MUST_PROVIDE_WORLD = ChatColor.RED + "You must provide a world (-w) as you are not in a world";
+
+    protected static final int DEFAULT_COUNT = 100;
+    protected static final double MIN_GRID_CELL_SIZE = 32;
+
+    protected final Plugin plugin;
+    protected final MaterialTable materials;
+    protected final Optional<ColumnCacheStore> columnCaches;
+    protected final int checksPerTick;
+    protected final int perTick;
+
+    protected final ArgumentAcceptingOptionSpec<EntityType> typeSpec;
+    protected final ArgumentAcceptingOptionSpec<Integer> countSpec;
+    protected final OptionSpec<Void> existingSpec;
+    protected final ArgumentAcceptingOptionSpec<World> worldSpec;
+    protected final ArgumentAcceptingOptionSpec<Double> centreSpec;
+    protected final ArgumentAcceptingOptionSpec<Double> radiusSpec;
+    protected final ArgumentAcceptingOptionSpec<Double> minRadiusSpec;
+    protected final ArgumentAcceptingOptionSpec<ScatterStyle> logicSpec;
+    protected final ArgumentAcceptingOptionSpec<Integer> maxAttemptsSpec;
+    protected final OptionSpec<Void> anyMaterialSpec;
+    protected final ArgumentAcceptingOptionSpec<Long> seedSpec;
+
+    protected EntityScatter running = null;
+
+    public EntityScatterCommand(Plugin plugin, int checksPerTick, int perTick, ScatterStyle defaultLogic, MaterialTable materials, Optional<ColumnCacheStore> columnCaches, int defaultMaxAttempts) {
+        this.plugin = plugin;
+        this.checksPerTick = checksPerTick;
+        this.perTick = perTick;
+        this.materials = materials;
+        this.columnCaches = columnCaches;
+
+        typeSpec = parser
+                .acceptsAll(ImmutableSet.of("e", "type"), "Type of entity to scatter")
+                .withRequiredArg()
+                .required()
+                .withValuesConvertedBy(new EntityTypeConverter());
+        completers.put(typeSpec, new EnumTabComplete(EntityType.class));
+
+        countSpec = parser
+                .acceptsAll(ImmutableSet.of("n", "count"), "How many entities to spawn")
+                .withRequiredArg()
+                .withValuesConvertedBy(new IntegerConverter().setPredicate(IntegerPredicates.GREATER_THAN_ZERO).setType("Integer > 0"))
+                .defaultsTo(DEFAULT_COUNT);
+        completers.put(countSpec, new FixedValuesTabComplete(String.valueOf(DEFAULT_COUNT)));
+
+        existingSpec = parser
+                .acceptsAll(ImmutableSet.of("existing"), "Move the entities of this type already in loaded chunks of the world instead of spawning new ones");
+
+        worldSpec = parser
+                .acceptsAll(ImmutableSet.of("w", "world"), "World to scatter into. If not provided uses the world you are in")
+                .withRequiredArg()
+                .withValuesConvertedBy(new WorldConverter());
+        completers.put(worldSpec, WorldTabComplete.INSTANCE);
+
+        centreSpec = parser
+                .acceptsAll(ImmutableSet.of("c", "centre"), "Coords of the centre of the scatter. If not provided uses world spawn location")
+                .withRequiredArg()
+                .withValuesSeparatedBy(':')
+                .withValuesConvertedBy(new DoubleConverter().setType("x:z"));
+        completers.put(centreSpec, new FixedValuesTabComplete("0:0"));
+
+        radiusSpec = parser
+                .acceptsAll(ImmutableSet.of("r", "radius"), "Radius around the centre coordinate to scatter")
+                .withRequiredArg()
+                .required()
+                .withValuesConvertedBy(new DoubleConverter().setPredicate(DoublePredicates.GREATER_THAN_ZERO_INC).setType("Number >= 0"));
+        completers.put(radiusSpec, new FixedValuesTabComplete("500", "750", "1000", "1500"));
+
+        minRadiusSpec = parser
+                .acceptsAll(ImmutableSet.of("m", "min", "minradius"), "Minimum radius between entities after scatter")
+                .withRequiredArg()
+                .withValuesConvertedBy(new DoubleConverter().setPredicate(DoublePredicates.GREATER_THAN_ZERO_INC).setType("Number >= 0"))
+                .defaultsTo(0D);
+        completers.put(minRadiusSpec, new FixedValuesTabComplete("0", "10", "50"));
+
+        logicSpec = parser
+                .acceptsAll(ImmutableSet.of("s", "style"), "Style of scatter to use")
+                .withRequiredArg()
+                .withValuesConvertedBy(new ScatterStyleConverter())
+                .defaultsTo(defaultLogic);
+        completers.put(logicSpec, new EnumTabComplete(ScatterStyle.class));
+
+        maxAttemptsSpec = parser
+                .acceptsAll(ImmutableSet.of("max", "maxAttempts"), "Maximum attempts to find each location")
+                .withRequiredArg()
+                .withValuesConvertedBy(new IntegerConverter().setPredicate(IntegerPredicates.GREATER_THAN_ZERO).setType("Integer > 0"))
+                .defaultsTo(defaultMaxAttempts);
+        completers.put(maxAttemptsSpec, new FixedValuesTabComplete(String.valueOf(defaultMaxAttempts)));
+
+        anyMaterialSpec = parser
+                .acceptsAll(ImmutableSet.of("a", "allowAllBlocks"), "Allows any blocks to be scattered onto, ignores config settings");
+
+        seedSpec = parser
+                .acceptsAll(ImmutableSet.of("seed"), "Seed for picking locations, the same seed and settings give the same locations. Random if not provided")
+                .withRequiredArg()
+                .withValuesConvertedBy(new SeedConverter());
+    }
+
+    @Override
+    protected boolean runCommand(final CommandSender sender, OptionSet options) {
+        if (running != null) {
+            sender.sendMessage(ALREADY_RUNNING);
+            return true;
+        }
+
+        World world;
+        if (options.has(worldSpec)) {
+            world = worldSpec.value(options);
+        } else {
+            if (!(sender instanceof Entity)) {
+                sender.sendMessage(MUST_PROVIDE_WORLD);
+                return true;
+            }
+
+            world = ((Entity) sender).getWorld();
+        }
+
+        double centreX, centreZ;
+        if (options.has(centreSpec)) {
+            List<Double> coords = centreSpec.values(options);
+
+            if (coords.size() != 2) {
+                throw new InvalidCoordinatesException(centreSpec.options());
+            }
+
+            centreX = coords.get(0);
+            centreZ = coords.get(1);
+        } else {
+            Location spawn = world.getSpawnLocation();
+            centreX = spawn.getX();
+            centreZ = spawn.getZ();
+        }
+
+        final EntityType type = typeSpec.value(options);
+        final String typeName = type.name();
+
+        // only the entities themselves are kept, not a Scatterable or Location for each
+        Entity[] targets = null;
+        if (options.has(existingSpec)) {
+            List<Entity> existing = Lists.newArrayList();
+            for (Entity entity : world.getEntities()) {
+                if (entity.getType() == type) {
+                    existing.add(entity);
+                }
+            }
+
+            if (existing.isEmpty()) {
+                sender.sendMessage(String.format(NONE_EXISTING, typeName, world.getName()));
+                return true;
+            }
+
+            targets = existing.toArray(new Entity[existing.size()]);
+        } else if (!type.isSpawnable()) {
+            sender.sendMessage(String.format(NOT_SPAWNABLE, typeName));
+            return true;
+        }
+
+        int count = targets == null ? countSpec.value(options) : targets.length;
+        double radius = radiusSpec.value(options);
+        double minRadius = minRadiusSpec.value(options);
+        long seed = options.has(seedSpec) ? seedSpec.value(options) : new Random().nextLong();
+
+        EntityScatter scatter = new EntityScatter(
+                world,
+                type,
+                logicSpec.value(options).candidates(centreX, centreZ, radius, count, seed),
+                new EntityScatter.Callback() {
+                    @Override
+                    public void onSearched(int found, int required) {
+                        if (found < required) {
+                            sender.sendMessage(String.format(PARTIAL, found, required, typeName));
+                        } else {
+                            sender.sendMessage(String.format(SEARCHED, found, typeName));
+                        }
+                    }
+
+                    @Override
+                    public void onFinished(int placed, int chunksLoaded, long millis) {
+                        running = null;
+                        sender.sendMessage(String.format(FINISHED, placed, typeName, millis, chunksLoaded));
+                    }
+                },
+                count,
+                checksPerTick,
+                perTick
+        );
+        scatter.setSeed(seed);
+        scatter.setMaxAttempts(maxAttemptsSpec.value(options));
+
+        if (targets != null) {
+            scatter.setTargets(targets);
+        }
+
+        if (minRadius > 0) {
+            // grid cells sized to the minimum radius so most lookups only hit a handful of zones
+            scatter.setMinRadius(new GridDeadZoneStore(Math.max(minRadius, MIN_GRID_CELL_SIZE)), minRadius);
+        }
+
+        if (!options.has(anyMaterialSpec)) {
+            scatter.setMaterials(materials);
+        }
+
+        if (columnCaches.isPresent()) {
+            scatter.setColumnCache(columnCaches.get().get(world));
+        }
+
+        running = scatter;
+        scatter.start(plugin);
+        sender.sendMessage(String.format(STARTING, count, typeName));
+        return true;
+    }
+}
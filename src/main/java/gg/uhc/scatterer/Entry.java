@@ -1,9 +1,18 @@
 package gg.uhc.scatterer;
 
+import com.google.common.base.Optional;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import gg.uhc.scatterer.metrics.MetricsStore;
+import gg.uhc.scatterer.placement.PlacementStore;
+import gg.uhc.scatterer.scheduling.TickMonitor;
+import gg.uhc.scatterer.search.ColumnCacheStore;
+import gg.uhc.scatterer.search.MaterialTable;
 import gg.uhc.scatterer.teleportation.ChunkPreparer;
+import gg.uhc.scatterer.teleportation.ChunkRetention;
 import gg.uhc.scatterer.teleportation.Teleporter;
 import org.bukkit.Material;
+import org.bukkit.block.Biome;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.FileConfiguration;
@@ -11,9 +20,22 @@ import org.bukkit.plugin.java.JavaPlugin;
 
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class Entry extends JavaPlugin {
 
+    // how many ticks the tick monitor keeps timings for
+    protected static final int TICK_SAMPLES = 100;
+    // how many scatters /sct stats can show
+    protected static final int STATS_KEPT = 10;
+
+    protected ExecutorService workers;
+    protected Teleporter teleporter;
+    protected ChunkRetention retention;
+    protected MaterialTable materials;
+    protected Optional<ColumnCacheStore> columnCaches = Optional.absent();
+
     @Override
     public void onEnable() {
         FileConfiguration configuration = getConfig();
@@ -21,25 +43,129 @@ public class Entry extends JavaPlugin {
         saveConfig();
 
         try {
-            Set<Material> materials = getAllowedMaterials(configuration);
+            materials = getMaterialTable(configuration);
             ScatterStyle style = getScatterStyle(configuration);
             int max = configuration.getInt("default max attempts per player");
             int perTeleport = configuration.getInt("default teleports per set");
             int ticksPer = configuration.getInt("default ticks between sets");
             double minRadius = configuration.getDouble("default minimum radius");
+            int searchThreads = configuration.getInt("async search threads");
+            int checksPerTick = configuration.getInt("async search checks per tick");
+            int chunksPerTick = configuration.getInt("chunks loaded per tick");
+            int lookahead = configuration.getInt("sets prepared ahead");
+            double targetMspt = configuration.getDouble("adaptive target mspt");
+            int teleportsPerTick = configuration.getInt("teleports per tick");
+            int holdTicks = configuration.getInt("chunk hold ticks after teleport");
+            int cachedChunks = configuration.getInt("column cache chunks");
+            boolean saveColumns = configuration.getBoolean("save column cache");
+            Set<Biome> excludedBiomes = getBiomes(configuration, "excluded biomes");
+            int optimiseMillis = configuration.getInt("optimise time budget millis");
+            int progressTicks = configuration.getInt("progress update ticks");
+            int reserveLocations = configuration.getInt("reserve locations");
+            int snapshotsPerTick = configuration.getInt("snapshot chunks per tick");
+            int maxSnapshots = configuration.getInt("snapshots kept");
+            int staggeredMembers = configuration.getInt("staggered members per tick");
+            int entitiesPerTick = configuration.getInt("entities placed per tick");
+
+            if (searchThreads < 1) throw new InvalidConfigurationException("Async search threads must be at least 1");
+            if (checksPerTick < 1) throw new InvalidConfigurationException("Async search checks per tick must be at least 1");
+            if (chunksPerTick < 1) throw new InvalidConfigurationException("Chunks loaded per tick must be at least 1");
+            if (lookahead < 0) throw new InvalidConfigurationException("Sets prepared ahead must be at least 0");
+            if (targetMspt <= 0) throw new InvalidConfigurationException("Adaptive target mspt must be greater than 0");
+            if (teleportsPerTick < 1) throw new InvalidConfigurationException("Teleports per tick must be at least 1");
+            if (holdTicks < 0) throw new InvalidConfigurationException("Chunk hold ticks after teleport must be at least 0");
+            if (reserveLocations < 0) throw new InvalidConfigurationException("Reserve locations must be at least 0");
+            if (progressTicks < 1) throw new InvalidConfigurationException("Progress update ticks must be at least 1");
+            if (optimiseMillis < 1) throw new InvalidConfigurationException("Optimise time budget millis must be at least 1");
+            if (snapshotsPerTick < 1) throw new InvalidConfigurationException("Snapshot chunks per tick must be at least 1");
+            if (maxSnapshots < 1) throw new InvalidConfigurationException("Snapshots kept must be at least 1");
+            if (staggeredMembers < 1) throw new InvalidConfigurationException("Staggered members per tick must be at least 1");
+            if (entitiesPerTick < 1) throw new InvalidConfigurationException("Entities placed per tick must be at least 1");
+            if (cachedChunks < 0) throw new InvalidConfigurationException("Column cache chunks must be at least 0");
+
+            workers = Executors.newFixedThreadPool(searchThreads, new ThreadFactoryBuilder().setNameFormat("Scatterer Worker #%d").setDaemon(true).build());
+
+            TickMonitor tickMonitor = new TickMonitor(TICK_SAMPLES);
+            tickMonitor.runTaskTimer(this, 0, 1);
 
-            Teleporter teleporter = new Teleporter(new ChunkPreparer(), this);
-            ScatterCommand command = new ScatterCommand(teleporter, style, materials, max, perTeleport, ticksPer, minRadius);
-            getCommand("sct").setExecutor(command);
+            // only chunks prepared for a scatter are kept loaded, nothing else is stopped from unloading
+            retention = new ChunkRetention(this, holdTicks);
+            getServer().getPluginManager().registerEvents(retention, this);
+
+            // 0 turns the cache off, every check reads the world
+            if (cachedChunks > 0) {
+                ColumnCacheStore store = new ColumnCacheStore(this, cachedChunks, saveColumns);
+                getServer().getPluginManager().registerEvents(store, this);
+                columnCaches = Optional.of(store);
+            }
+
+            teleporter = new Teleporter(new ChunkPreparer(this, retention, chunksPerTick), this, tickMonitor, lookahead, targetMspt, teleportsPerTick, materials, columnCaches);
+            MetricsStore metricsStore = new MetricsStore(this, workers, STATS_KEPT);
+            PlacementStore placements = new PlacementStore();
+            ScatterCommand command = new ScatterCommand(this, teleporter, metricsStore, placements, workers, searchThreads, checksPerTick, style, materials, columnCaches, excludedBiomes, max, perTeleport, ticksPer, minRadius, optimiseMillis, progressTicks, reserveLocations, snapshotsPerTick, maxSnapshots, staggeredMembers);
+            SubcommandRouter router = new SubcommandRouter(command);
+            router.register("precompute", new PrecomputeCommand(this, workers, searchThreads, checksPerTick, style, materials, columnCaches, max));
+            router.register("reload", new ReloadCommand(this));
+            router.register("stats", new StatsCommand(metricsStore, retention));
+            router.register("late", new LateCommand(teleporter, placements));
+            router.register("cancel", new CancelCommand(teleporter));
+            router.register("resume", new ResumeCommand(this, teleporter, command, metricsStore));
+            router.register("entities", new EntityScatterCommand(this, checksPerTick, entitiesPerTick, style, materials, columnCaches, max));
+            getCommand("sct").setExecutor(router);
         } catch (InvalidConfigurationException e) {
             e.printStackTrace();
             setEnabled(false);
         }
     }
 
+    @Override
+    public void onDisable() {
+        // running scatters are left in their journals for /sct resume
+        if (teleporter != null) {
+            teleporter.shutdown();
+        }
+
+        // sets still inside their hold time, their chunks would otherwise stay loaded
+        if (retention != null) {
+            retention.releaseAll();
+        }
+
+        if (columnCaches.isPresent()) {
+            columnCaches.get().saveAll();
+        }
+
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
 
-    protected Set<Material> getAllowedMaterials(ConfigurationSection section) throws InvalidConfigurationException {
-        List<String> matStrings = section.getStringList("allowed blocks");
+    // rereads the allowed blocks and their rules from the config file, running scatters pick up the change
+    public void reloadMaterials() throws InvalidConfigurationException {
+        reloadConfig();
+
+        // forget every cached column, picks up changes the cache couldn't see
+        if (columnCaches.isPresent()) {
+            columnCaches.get().clear();
+        }
+
+        FileConfiguration configuration = getConfig();
+        materials.load(
+                getMaterials(configuration, "allowed blocks"),
+                getMaterials(configuration, "blocks requiring air above"),
+                getMaterials(configuration, "blocks not allowed over liquid")
+        );
+    }
+
+    protected MaterialTable getMaterialTable(ConfigurationSection section) throws InvalidConfigurationException {
+        return new MaterialTable(
+                getMaterials(section, "allowed blocks"),
+                getMaterials(section, "blocks requiring air above"),
+                getMaterials(section, "blocks not allowed over liquid")
+        );
+    }
+
+    protected Set<Material> getMaterials(ConfigurationSection section, String path) throws InvalidConfigurationException {
+        List<String> matStrings = section.getStringList(path);
 
         Set<Material> materials = Sets.newHashSetWithExpectedSize(matStrings.size());
         for (String mat : matStrings) {
@@ -53,6 +179,21 @@ public class Entry extends JavaPlugin {
         return materials;
     }
 
+    protected Set<Biome> getBiomes(ConfigurationSection section, String path) throws InvalidConfigurationException {
+        List<String> biomeStrings = section.getStringList(path);
+
+        Set<Biome> biomes = Sets.newHashSetWithExpectedSize(biomeStrings.size());
+        for (String biome : biomeStrings) {
+            try {
+                biomes.add(Biome.valueOf(biome));
+            } catch (IllegalArgumentException e) {
+                throw new InvalidConfigurationException("Invalid biome name: " + biome);
+            }
+        }
+
+        return biomes;
+    }
+
     protected ScatterStyle getScatterStyle(ConfigurationSection section) throws InvalidConfigurationException {
         String name = section.getString("default scatter style");
         try {
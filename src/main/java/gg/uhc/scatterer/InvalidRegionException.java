@@ -0,0 +1,16 @@
+package gg.uhc.scatterer;
+
+import gg.uhc.flagcommands.joptsimple.OptionException;
+
+import java.util.Collection;
+
+public class InvalidRegionException extends OptionException {
+    public InvalidRegionException(Collection<String> options) {
+        super(options);
+    }
+
+    @Override
+    public String getMessage() {
+        return "Invalid region (require x1:z1:x2:z2 for a rectangle or at least 3 corners x:z:x:z:x:z for a polygon) " + multipleOptionMessage();
+    }
+}
@@ -0,0 +1,189 @@
+package gg.uhc.scatterer;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import gg.uhc.scatterer.placement.PlacementIndex;
+import gg.uhc.scatterer.placement.PlacementStore;
+import gg.uhc.scatterer.teleportation.Teleporter;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.Location;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.World;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabExecutor;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.scoreboard.Team;
+
+import java.util.List;
+
+public class LateCommand implements TabExecutor {
+
+    protected static final String SILENT_FLAG = "-silent";
+    protected static final String TEAM_FLAG = "-team";
+
+    protected static final String USAGE = ChatColor.RED + "Usage: /sct late <player> [world] [-team] [-silent]";
+    protected static final String NOT_ONLINE = ChatColor.RED + "Player %s isn't online";
+    protected static final String NO_INDEXES = ChatColor.RED + "No scatter has been run since the last restart, there's nothing to place late joiners against";
+    protected static final String PICK_WORLD = ChatColor.RED + "Scatters have been run in %s, choose one with /sct late <player> <world>";
+    protected static final String NO_INDEX = ChatColor.RED + "No scatter has been run in %s since the last restart";
+    protected static final String WORLD_NOT_LOADED = ChatColor.RED + "World %s isn't loaded";
+    protected static final String ALREADY_SCATTERING = ChatColor.RED + "There is a scatter in progress in %s, please wait for it to finish";
+    protected static final String NO_LOCATION = ChatColor.RED + "Couldn't find a location for %s within the scatter's max attempts";
+    protected static final String SCATTERED = ChatColor.GOLD + "%s was scattered late";
+    protected static final String JOINED_TEAM = ChatColor.GOLD + "%s was scattered late to their team %s";
+
+    protected final Teleporter teleporter;
+    protected final PlacementStore placements;
+
+    public LateCommand(Teleporter teleporter, PlacementStore placements) {
+        this.teleporter = teleporter;
+        this.placements = placements;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        List<String> arguments = Lists.newArrayList(args);
+        boolean silent = arguments.remove(SILENT_FLAG);
+        boolean toTeam = arguments.remove(TEAM_FLAG);
+
+        if (arguments.isEmpty()) {
+            sender.sendMessage(USAGE);
+            return true;
+        }
+
+        Player player = Bukkit.getPlayer(arguments.get(0));
+
+        if (player == null) {
+            sender.sendMessage(String.format(NOT_ONLINE, arguments.get(0)));
+            return true;
+        }
+
+        List<String> worlds = placements.getWorlds();
+
+        if (worlds.isEmpty()) {
+            sender.sendMessage(NO_INDEXES);
+            return true;
+        }
+
+        // use the given world, the only scattered world or the sender's world in that order
+        String worldName;
+        if (arguments.size() > 1) {
+            worldName = arguments.get(1);
+        } else if (worlds.size() == 1) {
+            worldName = worlds.get(0);
+        } else if (sender instanceof Entity && worlds.contains(((Entity) sender).getWorld().getName())) {
+            worldName = ((Entity) sender).getWorld().getName();
+        } else {
+            sender.sendMessage(String.format(PICK_WORLD, worlds));
+            return true;
+        }
+
+        World world = Bukkit.getWorld(worldName);
+
+        if (world == null) {
+            sender.sendMessage(String.format(WORLD_NOT_LOADED, worldName));
+            return true;
+        }
+
+        Optional<PlacementIndex> index = placements.get(world);
+
+        if (!index.isPresent()) {
+            sender.sendMessage(String.format(NO_INDEX, worldName));
+            return true;
+        }
+
+        // the index is still being filled in, placing against half of it could put them on top of someone
+        if (teleporter.isTeleporting(world)) {
+            sender.sendMessage(String.format(ALREADY_SCATTERING, worldName));
+            return true;
+        }
+
+        Team team = toTeam ? Bukkit.getScoreboardManager().getMainScoreboard().getPlayerTeam(player) : null;
+
+        if (team != null) {
+            Optional<Location> teamLocation = findTeam(index.get(), team, player);
+
+            if (teamLocation.isPresent()) {
+                player.teleport(teamLocation.get());
+                announce(sender, silent, String.format(JOINED_TEAM, player.getName(), team.getName()));
+                return true;
+            }
+        }
+
+        Optional<Location> location = index.get().place();
+
+        if (!location.isPresent()) {
+            sender.sendMessage(String.format(NO_LOCATION, player.getName()));
+            return true;
+        }
+
+        Location landing = location.get().add(0, 2, 0);
+
+        // a team without a location yet gets this one, the next of them to join late goes here too
+        Scatterable scatterable = team == null ? Scatterable.from(player) : Scatterable.from(team);
+        index.get().record(scatterable.getId(), landing);
+
+        Scatterable.from(player).teleport(landing);
+        Scatterable.from(player).sendNotice(landing);
+        announce(sender, silent, String.format(SCATTERED, player.getName()));
+        return true;
+    }
+
+    // a teammate already in the world, otherwise where the team was scattered to
+    protected Optional<Location> findTeam(PlacementIndex index, Team team, Player player) {
+        for (OfflinePlayer member : team.getPlayers()) {
+            if (!member.isOnline() || member.getPlayer().equals(player)) continue;
+
+            if (member.getPlayer().getWorld().equals(index.getWorld())) {
+                return Optional.of(member.getPlayer().getLocation());
+            }
+        }
+
+        return index.getPosition(Scatterable.from(team).getId());
+    }
+
+    protected void announce(CommandSender sender, boolean silent, String message) {
+        if (silent) {
+            sender.sendMessage(message);
+        } else {
+            Bukkit.broadcastMessage(message);
+        }
+    }
+
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        if (args.length == 0) return ImmutableList.of();
+
+        String last = args[args.length - 1];
+        List<String> options = Lists.newArrayList();
+
+        if (args.length == 1) {
+            for (Player player : Bukkit.getOnlinePlayers()) {
+                if (player.getName().toLowerCase().startsWith(last.toLowerCase())) {
+                    options.add(player.getName());
+                }
+            }
+            return options;
+        }
+
+        if (args.length == 2) {
+            for (String world : placements.getWorlds()) {
+                if (world.startsWith(last)) {
+                    options.add(world);
+                }
+            }
+        }
+
+        for (String flag : ImmutableList.of(TEAM_FLAG, SILENT_FLAG)) {
+            if (flag.startsWith(last)) {
+                options.add(flag);
+            }
+        }
+
+        return options;
+    }
+}
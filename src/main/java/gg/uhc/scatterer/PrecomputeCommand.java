@@ -0,0 +1,202 @@
+package gg.uhc.scatterer;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ListenableFuture;
+import gg.uhc.flagcommands.commands.OptionCommand;
+import gg.uhc.flagcommands.converters.DoubleConverter;
+import gg.uhc.flagcommands.converters.IntegerConverter;
+import gg.uhc.flagcommands.converters.WorldConverter;
+import gg.uhc.flagcommands.joptsimple.ArgumentAcceptingOptionSpec;
+import gg.uhc.flagcommands.joptsimple.OptionSet;
+import gg.uhc.flagcommands.joptsimple.OptionSpec;
+import gg.uhc.flagcommands.predicates.DoublePredicates;
+import gg.uhc.flagcommands.predicates.IntegerPredicates;
+import gg.uhc.flagcommands.tab.EnumTabComplete;
+import gg.uhc.flagcommands.tab.FixedValuesTabComplete;
+import gg.uhc.flagcommands.tab.WorldTabComplete;
+import gg.uhc.scatterer.conversion.ScatterStyleConverter;
+import gg.uhc.scatterer.pool.LocationPool;
+import gg.uhc.scatterer.scheduling.MainThreadExecutor;
+import gg.uhc.scatterer.search.ColumnCacheStore;
+import gg.uhc.scatterer.search.ListDeadZoneStore;
+import gg.uhc.scatterer.search.LocationSearch;
+import gg.uhc.scatterer.search.MaterialTable;
+import org.bukkit.ChatColor;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+
+public class PrecomputeCommand extends OptionCommand {
+
+    protected static final String STARTING = ChatColor.GOLD + "Precomputing %d locations in the background";
+    protected static final String SAVED = ChatColor.GOLD + "Saved %d locations to %s";
+    protected static final String FAILED = ChatColor.RED + "Failed to precompute locations: %s";
+    protected static final String MUST_PROVIDE_WORLD = ChatColor.RED + "You must provide a world (-w) as you are not in a world";
+
+    protected static final int DEFAULT_POOL_SIZE = 1000;
+
+    protected final Plugin plugin;
+    protected final ExecutorService workers;
+    protected final MainThreadExecutor mainThread;
+    protected final MaterialTable materials;
+    protected final Optional<ColumnCacheStore> columnCaches;
+    protected final int searchThreads;
+    protected final int checksPerTick;
+
+    protected final ArgumentAcceptingOptionSpec<World> worldSpec;
+    protected final ArgumentAcceptingOptionSpec<Double> centreSpec;
+    protected final ArgumentAcceptingOptionSpec<Double> radiusSpec;
+    protected final ArgumentAcceptingOptionSpec<ScatterStyle> logicSpec;
+    protected final ArgumentAcceptingOptionSpec<Integer> countSpec;
+    protected final ArgumentAcceptingOptionSpec<Integer> maxAttemptsSpec;
+    protected final OptionSpec<Void> anyMaterialSpec;
+
+    public PrecomputeCommand(Plugin plugin, ExecutorService workers, int searchThreads, int checksPerTick, ScatterStyle defaultLogic, MaterialTable materials, Optional<ColumnCacheStore> columnCaches, int defaultMaxAttempts) {
+        this.plugin = plugin;
+        this.workers = workers;
+        this.mainThread = new MainThreadExecutor(plugin);
+        this.searchThreads = searchThreads;
+        this.checksPerTick = checksPerTick;
+        this.materials = materials;
+        this.columnCaches = columnCaches;
+
+        worldSpec = parser
+                .acceptsAll(ImmutableSet.of("w", "world"), "World to precompute locations for. If not provided uses the world you are in")
+                .withRequiredArg()
+                .withValuesConvertedBy(new WorldConverter());
+        completers.put(worldSpec, WorldTabComplete.INSTANCE);
+
+        centreSpec = parser
+                .acceptsAll(ImmutableSet.of("c", "centre"), "Coords of the centre of the scatter. If not provided uses world spawn location")
+                .withRequiredArg()
+                .withValuesSeparatedBy(':')
+                .withValuesConvertedBy(new DoubleConverter().setType("x:z"));
+        completers.put(centreSpec, new FixedValuesTabComplete("0:0"));
+
+        radiusSpec = parser
+                .acceptsAll(ImmutableSet.of("r", "radius"), "Radius around the centre coordinate to scatter")
+                .withRequiredArg()
+                .required()
+                .withValuesConvertedBy(new DoubleConverter().setPredicate(DoublePredicates.GREATER_THAN_ZERO_INC).setType("Number >= 0"));
+        completers.put(radiusSpec, new FixedValuesTabComplete("500", "750", "1000", "1500"));
+
+        logicSpec = parser
+                .acceptsAll(ImmutableSet.of("s", "style"), "Style of scatter to use")
+                .withRequiredArg()
+                .withValuesConvertedBy(new ScatterStyleConverter())
+                .defaultsTo(defaultLogic);
+        completers.put(logicSpec, new EnumTabComplete(ScatterStyle.class));
+
+        countSpec = parser
+                .acceptsAll(ImmutableSet.of("n", "count"), "How many locations to put in the pool")
+                .withRequiredArg()
+                .withValuesConvertedBy(new IntegerConverter().setPredicate(IntegerPredicates.GREATER_THAN_ZERO).setType("Integer > 0"))
+                .defaultsTo(DEFAULT_POOL_SIZE);
+        completers.put(countSpec, new FixedValuesTabComplete(String.valueOf(DEFAULT_POOL_SIZE)));
+
+        maxAttemptsSpec = parser
+                .acceptsAll(ImmutableSet.of("max", "maxAttempts"), "Maximum attempts to find each location")
+                .withRequiredArg()
+                .withValuesConvertedBy(new IntegerConverter().setPredicate(IntegerPredicates.GREATER_THAN_ZERO).setType("Integer > 0"))
+                .defaultsTo(defaultMaxAttempts);
+        completers.put(maxAttemptsSpec, new FixedValuesTabComplete(String.valueOf(defaultMaxAttempts)));
+
+        anyMaterialSpec = parser
+                .acceptsAll(ImmutableSet.of("a", "allowAllBlocks"), "Allows any blocks in the pool, ignores config settings");
+    }
+
+    @Override
+    protected boolean runCommand(final CommandSender sender, OptionSet options) {
+        World world;
+        if (options.has(worldSpec)) {
+            world = worldSpec.value(options);
+        } else {
+            if (!(sender instanceof Entity)) {
+                sender.sendMessage(MUST_PROVIDE_WORLD);
+                return true;
+            }
+
+            world = ((Entity) sender).getWorld();
+        }
+
+        final double centreX, centreZ;
+        if (options.has(centreSpec)) {
+            List<Double> coords = centreSpec.values(options);
+
+            if (coords.size() != 2) {
+                throw new InvalidCoordinatesException(centreSpec.options());
+            }
+
+            centreX = coords.get(0);
+            centreZ = coords.get(1);
+        } else {
+            Location spawn = world.getSpawnLocation();
+            centreX = spawn.getX();
+            centreZ = spawn.getZ();
+        }
+
+        final ScatterStyle style = logicSpec.value(options);
+        final double radius = radiusSpec.value(options);
+        final int count = countSpec.value(options);
+        final long seed = new Random().nextLong();
+        final int fingerprint = options.has(anyMaterialSpec) ? 0 : materials.fingerprint();
+
+        // no dead zones, those are applied when drawing from the pool
+        LocationSearch search = new LocationSearch(
+                plugin,
+                workers,
+                world,
+                style.candidates(centreX, centreZ, radius, count, seed),
+                new ListDeadZoneStore(),
+                new ListDeadZoneStore()
+        );
+        search.setSeed(seed);
+        search.setMaxAttempts(maxAttemptsSpec.value(options));
+        search.setChecksPerTick(checksPerTick);
+        search.setThreads(searchThreads);
+
+        // every column checked here is already known to later scatters over the same area
+        if (columnCaches.isPresent()) {
+            search.setColumnCache(columnCaches.get().get(world));
+        }
+
+        if (!options.has(anyMaterialSpec)) {
+            search.setMaterials(materials);
+        }
+
+        final World poolWorld = world;
+        final File file = new File(new File(plugin.getDataFolder(), LocationPool.FOLDER), LocationPool.getFileName(world.getName(), style, centreX, centreZ, radius));
+        final ListenableFuture<List<Location>> future = search.start(count);
+
+        sender.sendMessage(String.format(STARTING, count));
+
+        future.addListener(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    LocationPool.fromLocations(poolWorld, style, centreX, centreZ, radius, fingerprint, future.get()).write(file);
+                    sender.sendMessage(String.format(SAVED, count, file.getName()));
+                } catch (ExecutionException e) {
+                    sender.sendMessage(String.format(FAILED, e.getCause().getMessage()));
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    sender.sendMessage(String.format(FAILED, e.getMessage()));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, mainThread);
+
+        return true;
+    }
+}
@@ -0,0 +1,47 @@
+package gg.uhc.scatterer;
+
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.scheduler.BukkitRunnable;
+
+// Collects progress from a scatter and sends it on its own timer instead of after every set,
+// so several sets finishing between messages only cost one message. Nothing is sent if there
+// was no progress since the last one
+public class ProgressBroadcaster extends BukkitRunnable {
+
+    protected static final String UPDATE_MESSAGE = ChatColor.AQUA + "Scatter in progress: %d of %d players/teams complete";
+
+    protected final CommandSender sender;
+    protected final boolean silent;
+
+    protected int completed = 0;
+    protected int total = 0;
+    protected boolean changed = false;
+
+    public ProgressBroadcaster(CommandSender sender, boolean silent) {
+        this.sender = sender;
+        this.silent = silent;
+    }
+
+    // cheap enough to call after every set, the message is only made when it's sent
+    public void update(int completed, int total) {
+        this.completed = completed;
+        this.total = total;
+        changed = true;
+    }
+
+    @Override
+    public void run() {
+        if (!changed) return;
+
+        changed = false;
+        String message = String.format(UPDATE_MESSAGE, completed, total);
+
+        if (silent) {
+            sender.sendMessage(message);
+        } else {
+            Bukkit.broadcastMessage(message);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package gg.uhc.scatterer;
+
+import com.google.common.collect.ImmutableList;
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabExecutor;
+import org.bukkit.configuration.InvalidConfigurationException;
+
+import java.util.List;
+
+public class ReloadCommand implements TabExecutor {
+
+    protected static final String RELOADED = ChatColor.GOLD + "Reloaded allowed blocks and block rules, cleared cached columns";
+    protected static final String FAILED = ChatColor.RED + "Failed to reload, keeping the old blocks: %s";
+
+    protected final Entry plugin;
+
+    public ReloadCommand(Entry plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        try {
+            plugin.reloadMaterials();
+            sender.sendMessage(RELOADED);
+        } catch (InvalidConfigurationException e) {
+            sender.sendMessage(String.format(FAILED, e.getMessage()));
+        }
+
+        return true;
+    }
+
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        return ImmutableList.of();
+    }
+}
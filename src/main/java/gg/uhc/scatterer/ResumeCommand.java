@@ -0,0 +1,174 @@
+package gg.uhc.scatterer;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import gg.uhc.scatterer.journal.ScatterJournal;
+import gg.uhc.scatterer.journal.ScatterPlan;
+import gg.uhc.scatterer.metrics.MetricsStore;
+import gg.uhc.scatterer.metrics.ScatterMetrics;
+import gg.uhc.scatterer.teleportation.Teleporter;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabExecutor;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+public class ResumeCommand implements TabExecutor {
+
+    protected static final String SILENT_FLAG = "-silent";
+
+    protected static final String NO_JOURNALS = ChatColor.RED + "There are no interrupted scatters to resume";
+    protected static final String PICK_WORLD = ChatColor.RED + "There are interrupted scatters in %s, choose one with /sct resume <world>";
+    protected static final String NO_JOURNAL = ChatColor.RED + "There is no interrupted scatter for %s";
+    protected static final String UNREADABLE = ChatColor.RED + "Unable to read the journal for %s, check the console for details";
+    protected static final String WORLD_NOT_LOADED = ChatColor.RED + "World %s isn't loaded";
+    protected static final String ALREADY_SCATTERING = ChatColor.RED + "There is already a scatter in progress in %s, please wait";
+    protected static final String NOTHING_LEFT = ChatColor.GOLD + "Everyone in the scatter for %s was already teleported";
+    protected static final String RESUMING = ChatColor.GOLD + "Resuming scatter in %s, %d already teleported, %d left";
+    protected static final String SKIPPED = ChatColor.GRAY + "Skipped %d offline players/removed teams";
+
+    protected final Plugin plugin;
+    protected final Teleporter teleporter;
+    protected final ScatterCommand scatterCommand;
+    protected final MetricsStore metricsStore;
+
+    public ResumeCommand(Plugin plugin, Teleporter teleporter, ScatterCommand scatterCommand, MetricsStore metricsStore) {
+        this.plugin = plugin;
+        this.teleporter = teleporter;
+        this.scatterCommand = scatterCommand;
+        this.metricsStore = metricsStore;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        List<String> arguments = Lists.newArrayList(args);
+        boolean silent = arguments.remove(SILENT_FLAG);
+
+        List<String> journals = ScatterJournal.getJournalWorlds(plugin.getDataFolder());
+
+        if (journals.isEmpty()) {
+            sender.sendMessage(NO_JOURNALS);
+            return true;
+        }
+
+        // use the given world, the only journal or the sender's world in that order
+        String worldName;
+        if (arguments.size() > 0) {
+            worldName = arguments.get(0);
+        } else if (journals.size() == 1) {
+            worldName = journals.get(0);
+        } else if (sender instanceof Entity && journals.contains(((Entity) sender).getWorld().getName())) {
+            worldName = ((Entity) sender).getWorld().getName();
+        } else {
+            sender.sendMessage(String.format(PICK_WORLD, journals));
+            return true;
+        }
+
+        File file = ScatterJournal.getFile(plugin.getDataFolder(), worldName);
+
+        if (!file.exists()) {
+            sender.sendMessage(String.format(NO_JOURNAL, worldName));
+            return true;
+        }
+
+        World world = Bukkit.getWorld(worldName);
+
+        if (world == null) {
+            sender.sendMessage(String.format(WORLD_NOT_LOADED, worldName));
+            return true;
+        }
+
+        if (teleporter.isTeleporting(world)) {
+            sender.sendMessage(String.format(ALREADY_SCATTERING, worldName));
+            return true;
+        }
+
+        ScatterPlan plan;
+        try {
+            plan = ScatterJournal.read(file);
+        } catch (IOException e) {
+            e.printStackTrace();
+            sender.sendMessage(String.format(UNREADABLE, worldName));
+            return true;
+        }
+
+        List<Location> locations = Lists.newArrayList();
+        List<Scatterable> scatterables = Lists.newArrayList();
+        int skipped = 0;
+
+        Optional<Scatterable> scatterable;
+        double[] coords;
+        for (Map.Entry<String, double[]> entry : plan.getRemaining().entrySet()) {
+            scatterable = Scatterable.fromId(entry.getKey());
+
+            if (!scatterable.isPresent()) {
+                skipped++;
+                continue;
+            }
+
+            coords = entry.getValue();
+            locations.add(new Location(world, coords[0], coords[1], coords[2]));
+            scatterables.add(scatterable.get());
+        }
+
+        if (skipped > 0) {
+            sender.sendMessage(String.format(SKIPPED, skipped));
+        }
+
+        if (locations.isEmpty()) {
+            if (!file.delete()) {
+                file.deleteOnExit();
+            }
+            sender.sendMessage(String.format(NOTHING_LEFT, worldName));
+            return true;
+        }
+
+        // spares go after the locations, the teleporter keeps anything past the last scatterable in reserve
+        for (double[] spare : plan.getSpares()) {
+            locations.add(new Location(world, spare[0], spare[1], spare[2]));
+        }
+
+        String message = String.format(RESUMING, worldName, plan.getDone(), scatterables.size());
+        if (silent) {
+            sender.sendMessage(message);
+        } else {
+            Bukkit.broadcastMessage(message);
+        }
+
+        // no search needed, the locations are the ones from before and the journal is rewritten with what's left.
+        // Landing spots are checked with the same blocks, column cache and staggering as the original scatter
+        ScatterMetrics metrics = new ScatterMetrics(worldName, plan.getStyle(), plan.getSeed(), scatterables.size(), ScatterMetrics.Mode.RESUME);
+        metricsStore.add(metrics);
+
+        teleporter.teleport(world, locations, scatterables, plan.getChunkSize(), plan.getTicksPer(), plan.isAdaptive(), plan.isAnyMaterial(), plan.getStaggeredMembers(), metrics, scatterCommand.createCallback(sender, silent, false, metrics));
+        return true;
+    }
+
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        if (args.length != 1) return ImmutableList.of();
+
+        List<String> options = Lists.newArrayList();
+        for (String world : ScatterJournal.getJournalWorlds(plugin.getDataFolder())) {
+            if (world.startsWith(args[0])) {
+                options.add(world);
+            }
+        }
+
+        if (SILENT_FLAG.startsWith(args[0])) {
+            options.add(SILENT_FLAG);
+        }
+
+        return options;
+    }
+}
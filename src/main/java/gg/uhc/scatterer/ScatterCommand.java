@@ -1,15 +1,19 @@
 package gg.uhc.scatterer;
 
+import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ListenableFuture;
 import gg.uhc.scatterlib.DefaultScatterer;
 import gg.uhc.scatterlib.Scatterer;
 import gg.uhc.scatterlib.exceptions.ScatterLocationException;
 import gg.uhc.scatterlib.logic.StandardScatterLogic;
 import gg.uhc.scatterlib.zones.CircularDeadZoneBuilder;
 import gg.uhc.scatterlib.zones.DeadZone;
+import gg.uhc.scatterlib.zones.DeadZoneBuilder;
 import gg.uhc.flagcommands.commands.OptionCommand;
 import gg.uhc.flagcommands.converters.DoubleConverter;
 import gg.uhc.flagcommands.converters.IntegerConverter;
@@ -21,28 +25,97 @@ import gg.uhc.flagcommands.joptsimple.OptionSpec;
 import gg.uhc.flagcommands.predicates.DoublePredicates;
 import gg.uhc.flagcommands.predicates.IntegerPredicates;
 import gg.uhc.flagcommands.tab.*;
+import gg.uhc.scatterer.conversion.BiomeConverter;
 import gg.uhc.scatterer.conversion.ScatterStyleConverter;
+import gg.uhc.scatterer.conversion.SeedConverter;
+import gg.uhc.scatterer.metrics.MetricsStore;
+import gg.uhc.scatterer.metrics.ScatterMetrics;
+import gg.uhc.scatterer.placement.PlacementIndex;
+import gg.uhc.scatterer.placement.PlacementStore;
+import gg.uhc.scatterer.pool.LocationPool;
+import gg.uhc.scatterer.scheduling.MainThreadExecutor;
+import gg.uhc.scatterer.search.AreaMask;
+import gg.uhc.scatterer.search.CandidateGenerator;
+import gg.uhc.scatterer.search.CircularZone;
+import gg.uhc.scatterer.search.ColumnCacheStore;
+import gg.uhc.scatterer.search.DeadZoneStore;
+import gg.uhc.scatterer.search.GridDeadZoneStore;
+import gg.uhc.scatterer.search.ListDeadZoneStore;
+import gg.uhc.scatterer.search.LocationSearch;
+import gg.uhc.scatterer.search.MaterialTable;
+import gg.uhc.scatterer.search.PolygonRegion;
+import gg.uhc.scatterer.search.RandomCircleCandidates;
+import gg.uhc.scatterer.search.RandomSquareCandidates;
+import gg.uhc.scatterer.search.RectangleRegion;
+import gg.uhc.scatterer.search.Region;
+import gg.uhc.scatterer.search.SnapshotStore;
+import gg.uhc.scatterer.search.SpacingOptimiser;
+import gg.uhc.scatterer.search.SplitMixRandom;
+import gg.uhc.scatterer.search.LocationSearchException;
+import gg.uhc.scatterer.teleportation.ScatterJob;
 import gg.uhc.scatterer.teleportation.Teleporter;
 import org.bukkit.*;
+import org.bukkit.block.Biome;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
 import org.bukkit.scoreboard.Scoreboard;
 import org.bukkit.scoreboard.Team;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class ScatterCommand extends OptionCommand {
 
     protected static final String STARTING_SCATTER = ChatColor.GOLD + "Starting scatter of %d players/teams";
-    protected static final String ALREADY_SCATTERING = ChatColor.RED + "There is already a scatter in progress, please wait";
-    protected static final String UPDATE_MESSAGE = ChatColor.AQUA + "Scatter in progress: %d of %d players/teams complete";
+    protected static final String ALREADY_SCATTERING = ChatColor.RED + "There is already a scatter in progress in %s, please wait";
     protected static final String SCATTERED = ChatColor.GOLD + "Scatter complete";
     protected static final String MUST_PROVIDE_WORLD = ChatColor.RED + "You must provide a world (-w) as you are not in a world";
-
-    protected final Set<Material> materials;
+    protected static final String SEARCHING = ChatColor.GRAY + "Searching for %d locations in the background";
+    protected static final String FAILED_ATTEMPT = ChatColor.RED + "Failed to find locations for all players, attempt #%d";
+    // smallest grid cell used for dead zone lookups, smaller cells just waste memory
+    protected static final double MIN_GRID_CELL_SIZE = 32;
+
+    protected static final String NO_POOL = ChatColor.RED + "No precomputed pool %s, create one with /sct precompute using the same world, centre and radius";
+    protected static final String POOL_MATERIALS_CHANGED = ChatColor.RED + "Pool %s was made with different allowed blocks, run /sct precompute again";
+    protected static final String POOL_STYLE_CHANGED = ChatColor.RED + "Pool %s was made for a different scatter style, run /sct precompute again";
+    protected static final String POOL_UNREADABLE = ChatColor.RED + "Unable to read pool %s, check the console for details";
+    protected static final String SEED_MESSAGE = ChatColor.GRAY + "Scatter seed: %d";
+    protected static final String OPTIMISE_WITH_STREAM = ChatColor.RED + "-optimise needs every location before it can start, it can't be used with -stream";
+    // how many valid locations per player/team the optimiser gets to choose from
+    protected static final int OPTIMISE_CANDIDATES = 8;
+    protected static final String FILTERS_WITH_POOL = ChatColor.RED + "Regions, -border and -excludeBiomes can't be used with -pool";
+    protected static final String NO_ALLOWED_AREA = ChatColor.RED + "No part of the scatter radius is inside the regions given";
+    protected static final String HIT_MAX_ATTEMPTS = ChatColor.RED + "Hit max attempts to scatter. Try a larger radius (-r), smaller minimum distance (-min) or allowing more blocks (-a).";
+
+    protected final Plugin plugin;
+    protected final MaterialTable materials;
+    protected final Optional<ColumnCacheStore> columnCaches;
+    protected final Set<Biome> excludedBiomes;
     protected final Teleporter teleporter;
+    protected final MetricsStore metricsStore;
+    protected final PlacementStore placements;
+    protected final MainThreadExecutor mainThread;
+    protected final ExecutorService workers;
+    protected final int searchThreads;
+    protected final int checksPerTick;
+    protected final long optimiseNanos;
+    protected final int progressTicks;
+    protected final int reserveLocations;
+    protected final int snapshotsPerTick;
+    protected final int maxSnapshots;
+    protected final int staggeredMembers;
 
     protected final OptionSpec<Void> useTeamsSpec;
     protected final ArgumentAcceptingOptionSpec<World> worldSpawnSpec;
@@ -58,10 +131,39 @@ public class ScatterCommand extends OptionCommand {
     protected final OptionSpec<Void> silentSpec;
     protected final ArgumentAcceptingOptionSpec<Integer> perTeleportSpec;
     protected final ArgumentAcceptingOptionSpec<Integer> ticksPerTeleport;
-
-    public ScatterCommand(Teleporter teleporter, ScatterStyle defaultLogic, Set<Material> materials, int defaultMaxAttempts, int perTeleport, int ticksPer, double minRadius) {
+    protected final OptionSpec<Void> asyncSpec;
+    protected final OptionSpec<Void> linearZonesSpec;
+    protected final OptionSpec<Void> adaptiveSpec;
+    protected final OptionSpec<Void> poolSpec;
+    protected final OptionSpec<Void> streamSpec;
+    protected final OptionSpec<Void> snapshotsSpec;
+    protected final ArgumentAcceptingOptionSpec<Biome> excludeBiomesSpec;
+    protected final ArgumentAcceptingOptionSpec<Double> regionSpec;
+    protected final ArgumentAcceptingOptionSpec<Double> polygonSpec;
+    protected final OptionSpec<Void> borderSpec;
+    protected final OptionSpec<Void> optimiseSpec;
+    protected final OptionSpec<Void> quietSpec;
+    protected final OptionSpec<Void> staggerSpec;
+    protected final ArgumentAcceptingOptionSpec<Long> seedSpec;
+
+    public ScatterCommand(Plugin plugin, Teleporter teleporter, MetricsStore metricsStore, PlacementStore placements, ExecutorService workers, int searchThreads, int checksPerTick, ScatterStyle defaultLogic, MaterialTable materials, Optional<ColumnCacheStore> columnCaches, Set<Biome> excludedBiomes, int defaultMaxAttempts, int perTeleport, int ticksPer, double minRadius, int optimiseMillis, int progressTicks, int reserveLocations, int snapshotsPerTick, int maxSnapshots, int staggeredMembers) {
+        this.plugin = plugin;
         this.teleporter = teleporter;
+        this.metricsStore = metricsStore;
+        this.placements = placements;
+        this.mainThread = new MainThreadExecutor(plugin);
+        this.workers = workers;
+        this.searchThreads = searchThreads;
+        this.checksPerTick = checksPerTick;
+        this.optimiseNanos = TimeUnit.MILLISECONDS.toNanos(optimiseMillis);
+        this.progressTicks = progressTicks;
+        this.reserveLocations = reserveLocations;
+        this.snapshotsPerTick = snapshotsPerTick;
+        this.maxSnapshots = maxSnapshots;
+        this.staggeredMembers = staggeredMembers;
         this.materials = materials;
+        this.columnCaches = columnCaches;
+        this.excludedBiomes = excludedBiomes;
 
         useTeamsSpec = parser
                 .acceptsAll(ImmutableSet.of("t", "teams"), "Scatter players as teams, players not in a team will be scattered solo");
@@ -143,17 +245,70 @@ public class ScatterCommand extends OptionCommand {
                 .withValuesConvertedBy(new IntegerConverter().setPredicate(IntegerPredicates.GREATER_THAN_ZERO).setType("Integer > 0"))
                 .defaultsTo(ticksPer);
         completers.put(ticksPerTeleport, new FixedValuesTabComplete(String.valueOf(ticksPer)));
+
+        asyncSpec = parser
+                .acceptsAll(ImmutableSet.of("async"), "Search for locations in the background, checking blocks over several ticks");
+
+        linearZonesSpec = parser
+                .acceptsAll(ImmutableSet.of("linearZones"), "Check every dead zone for each location in -async scatters instead of using the grid index");
+
+        adaptiveSpec = parser
+                .acceptsAll(ImmutableSet.of("adaptive"), "Tune the teleports per set and ticks between sets to the server's tick time, starts from -p and -ticks");
+
+        poolSpec = parser
+                .acceptsAll(ImmutableSet.of("pool"), "Draw locations from the pool made by /sct precompute for the same world, centre and radius");
+
+        streamSpec = parser
+                .acceptsAll(ImmutableSet.of("stream"), "Search in the background and start teleporting as soon as the first set of locations is found");
+
+        snapshotsSpec = parser
+                .acceptsAll(ImmutableSet.of("snapshots"), "Search in the background and check blocks on worker threads against chunk snapshots instead of on the server thread");
+
+        excludeBiomesSpec = parser
+                .acceptsAll(ImmutableSet.of("excludeBiomes"), "Biomes to keep players/teams out of, separated by commas. Defaults to the biomes set in the config file")
+                .withRequiredArg()
+                .withValuesSeparatedBy(',')
+                .withValuesConvertedBy(new BiomeConverter());
+        completers.put(excludeBiomesSpec, new EnumTabComplete(Biome.class));
+
+        regionSpec = parser
+                .acceptsAll(ImmutableSet.of("region"), "Only scatter inside the rectangle between two corners x1:z1:x2:z2")
+                .withRequiredArg()
+                .withValuesSeparatedBy(':')
+                .withValuesConvertedBy(new DoubleConverter().setType("x1:z1:x2:z2"));
+
+        polygonSpec = parser
+                .acceptsAll(ImmutableSet.of("polygon"), "Only scatter inside the polygon with the corners x:z:x:z:x:z...")
+                .withRequiredArg()
+                .withValuesSeparatedBy(':')
+                .withValuesConvertedBy(new DoubleConverter().setType("x:z:x:z:x:z..."));
+
+        borderSpec = parser
+                .acceptsAll(ImmutableSet.of("border"), "Only scatter inside the world border");
+
+        optimiseSpec = parser
+                .acceptsAll(ImmutableSet.of("optimise"), "Find extra locations and pick the ones spread furthest apart instead of the first ones found");
+
+        quietSpec = parser
+                .acceptsAll(ImmutableSet.of("quiet"), "Doesn't send progress updates or tell each player where they were scattered");
+
+        staggerSpec = parser
+                .acceptsAll(ImmutableSet.of("stagger"), "Teleport each team's members to their spot over the following ticks instead of all in the same tick");
+
+        seedSpec = parser
+                .acceptsAll(ImmutableSet.of("seed"), "Seed for picking locations, the same seed and settings give the same locations. Random if not provided")
+                .withRequiredArg()
+                .withValuesConvertedBy(new SeedConverter());
     }
 
     @Override
     protected boolean runCommand(final CommandSender sender, OptionSet options) {
-        if (teleporter.isTeleporting()) {
-            sender.sendMessage(ALREADY_SCATTERING);
-            return true;
-        }
+        // use a random seed when not provided, it's shown to the sender so the scatter can be repeated
+        long seed = options.has(seedSpec) ? seedSpec.value(options) : new Random().nextLong();
 
-        // grab the required logic
-        StandardScatterLogic logic = logicSpec.value(options).provide();
+        // grab the required logic, styles without one always search in the background
+        ScatterStyle style = logicSpec.value(options);
+        Optional<StandardScatterLogic> libraryLogic = style.provide(new SplitMixRandom(seed));
 
         // if world is provided use it otherwise attempt
         // to use the world of the sender
@@ -169,6 +324,12 @@ public class ScatterCommand extends OptionCommand {
             world = ((Entity) sender).getWorld();
         }
 
+        // scatters in other worlds can run at the same time
+        if (teleporter.isTeleporting(world)) {
+            sender.sendMessage(String.format(ALREADY_SCATTERING, world.getName()));
+            return true;
+        }
+
         Location centre;
 
         // use world spawn if centre coords are not provided
@@ -185,17 +346,6 @@ public class ScatterCommand extends OptionCommand {
             centre = world.getSpawnLocation();
         }
 
-        // setup the logic with our values
-        logic.setCentre(centre);
-        logic.setMaxAttempts(maxAttemptsSpec.value(options));
-        logic.setRadius(radiusSpec.value(options));
-
-        // only set the materials if any materials wasn't set
-        // scatterer uses any material if none provided
-        if (!options.has(anyMaterialSpec)) {
-            logic.setMaterials(materials);
-        }
-
         List<Player> toScatter = playersSpec.values(options);
 
         // if none provided scatter all players online
@@ -209,6 +359,199 @@ public class ScatterCommand extends OptionCommand {
             }
         }
 
+        Set<Scatterable> scatter = getScatterables(toScatter, options.has(useTeamsSpec));
+        boolean silent = options.has(silentSpec);
+        boolean quiet = options.has(quietSpec);
+        int staggered = options.has(staggerSpec) ? staggeredMembers : 0;
+
+        sender.sendMessage(String.format(SEED_MESSAGE, seed));
+
+        double minRadius = minRadiusSpec.value(options);
+
+        if (options.has(poolSpec)) {
+            // pools are drawn from without checking the world, the config's excluded biomes don't apply either
+            if (options.has(regionSpec) || options.has(polygonSpec) || options.has(borderSpec) || options.has(excludeBiomesSpec)) {
+                sender.sendMessage(FILTERS_WITH_POOL);
+                return true;
+            }
+
+            File file = new File(new File(plugin.getDataFolder(), LocationPool.FOLDER), LocationPool.getFileName(world.getName(), style, centre.getX(), centre.getZ(), radiusSpec.value(options)));
+
+            if (!file.exists()) {
+                sender.sendMessage(String.format(NO_POOL, file.getName()));
+                return true;
+            }
+
+            List<Location> locations;
+            ScatterMetrics metrics = new ScatterMetrics(world.getName(), style.name(), seed, scatter.size(), ScatterMetrics.Mode.POOL);
+            try {
+                LocationPool pool = LocationPool.read(file);
+
+                if (pool.getStyle() != style) {
+                    sender.sendMessage(String.format(POOL_STYLE_CHANGED, file.getName()));
+                    return true;
+                }
+
+                if (pool.getMaterialsFingerprint() != (options.has(anyMaterialSpec) ? 0 : materials.fingerprint())) {
+                    sender.sendMessage(String.format(POOL_MATERIALS_CHANGED, file.getName()));
+                    return true;
+                }
+
+                metricsStore.add(metrics);
+
+                locations = pool.draw(world, scatter.size(), reserveLocations, createDeadZoneStore(options), getInitialZones(world, centre, toScatter, options), minRadius, new SplitMixRandom(seed), reattemptsSpec.value(options), metrics);
+            } catch (IOException e) {
+                e.printStackTrace();
+                sender.sendMessage(String.format(POOL_UNREADABLE, file.getName()));
+                return true;
+            } catch (LocationSearchException e) {
+                metrics.fail(e);
+                metricsStore.save(metrics);
+                sender.sendMessage(HIT_MAX_ATTEMPTS);
+                return true;
+            }
+
+            broadcastStart(sender, scatter.size(), silent);
+            startIndex(world, centre, style, Optional.<AreaMask>absent(), options, seed).reserve(locations.subList(scatter.size(), locations.size()));
+            teleporter.teleport(world, locations, Lists.newArrayList(scatter), perTeleportSpec.value(options), ticksPerTeleport.value(options), options.has(adaptiveSpec), options.has(anyMaterialSpec), staggered, metrics, createCallback(sender, silent, quiet, metrics));
+            return true;
+        }
+
+        boolean stream = options.has(streamSpec);
+        boolean optimise = options.has(optimiseSpec);
+        boolean snapshots = options.has(snapshotsSpec);
+
+        if (optimise && stream) {
+            sender.sendMessage(OPTIMISE_WITH_STREAM);
+            return true;
+        }
+
+        // filters are only checked by the background search
+        Optional<AreaMask> mask = createMask(world, centre, options);
+
+        if (mask.isPresent() && !mask.get().hasAllowedArea()) {
+            sender.sendMessage(NO_ALLOWED_AREA);
+            return true;
+        }
+
+        if (options.has(asyncSpec) || stream || optimise || snapshots || mask.isPresent() || !libraryLogic.isPresent()) {
+            // the optimiser spaces the locations out itself, the search just has to find enough of them
+            // spares are only searched for up front and never fail the search, a scatter that only just
+            // fits goes ahead with fewer of them
+            int spares = stream ? 0 : reserveLocations;
+            int searchCount = optimise ? scatter.size() * OPTIMISE_CANDIDATES : scatter.size();
+
+            DeadZoneStore initialZones = createDeadZoneStore(options);
+            initialZones.addAll(getInitialZones(world, centre, toScatter, options));
+
+            LocationSearch search = new LocationSearch(
+                    plugin,
+                    workers,
+                    world,
+                    style.candidates(centre.getX(), centre.getZ(), radiusSpec.value(options), searchCount, seed),
+                    initialZones,
+                    createDeadZoneStore(options)
+            );
+            search.setSeed(seed);
+            search.setMaxAttempts(maxAttemptsSpec.value(options));
+            search.setReattempts(reattemptsSpec.value(options));
+            search.setMinRadius(optimise ? 0 : minRadius);
+            search.setChecksPerTick(checksPerTick);
+            search.setThreads(searchThreads);
+            search.setStreaming(stream);
+            search.setSpares(optimise ? spares * OPTIMISE_CANDIDATES : spares);
+
+            if (mask.isPresent()) {
+                search.setMask(mask.get());
+            }
+
+            // snapshots are read on the workers, the column cache is only for checks on the server thread
+            if (snapshots) {
+                search.setSnapshots(new SnapshotStore(world, snapshotsPerTick, maxSnapshots));
+            } else if (columnCaches.isPresent()) {
+                search.setColumnCache(columnCaches.get().get(world));
+            }
+
+            ScatterMetrics metrics = new ScatterMetrics(world.getName(), style.name(), seed, scatter.size(), ScatterMetrics.Mode.ASYNC);
+            metricsStore.add(metrics);
+            search.setMetrics(metrics);
+
+            if (!options.has(anyMaterialSpec)) {
+                search.setMaterials(materials);
+            }
+
+            sender.sendMessage(String.format(SEARCHING, searchCount));
+            broadcastStart(sender, scatter.size(), silent);
+
+            ListenableFuture<List<Location>> locations = search.start(searchCount);
+
+            if (optimise) {
+                locations = SpacingOptimiser.optimiseWhenFound(locations, scatter.size(), spares, minRadius, new SplitMixRandom(seed), optimiseNanos, workers);
+            }
+
+            final PlacementIndex index = startIndex(world, centre, style, mask, options, seed);
+
+            if (!stream) {
+                final int count = scatter.size();
+                final ListenableFuture<List<Location>> found = locations;
+
+                // spares the scatter doesn't use are the first tried for late joiners
+                found.addListener(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            List<Location> all = found.get();
+                            index.reserve(all.subList(count, all.size()));
+                        } catch (ExecutionException e) {
+                            // the teleporter reports the failure
+                        } catch (CancellationException e) {
+                            // same for cancelling
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                }, mainThread);
+            }
+
+            final Optional<ScatterJob> job = stream
+                    ? Optional.of(teleporter.stream(world, locations, Lists.newArrayList(scatter), perTeleportSpec.value(options), ticksPerTeleport.value(options), options.has(adaptiveSpec), options.has(anyMaterialSpec), staggered, metrics, createCallback(sender, silent, quiet, metrics)))
+                    : Optional.<ScatterJob>absent();
+
+            // set after starting, nothing is checked (or found) until the next tick
+            search.setCallback(new LocationSearch.Callback() {
+                @Override
+                public void onReattempt(int attempt) {
+                    sender.sendMessage(String.format(FAILED_ATTEMPT, attempt));
+                }
+
+                @Override
+                public void onFound(Location location) {
+                    if (job.isPresent()) {
+                        job.get().offer(location);
+                    }
+                }
+            });
+
+            if (!stream) {
+                // returns straight away, teleports start when the search completes
+                teleporter.teleport(world, locations, Lists.newArrayList(scatter), perTeleportSpec.value(options), ticksPerTeleport.value(options), options.has(adaptiveSpec), options.has(anyMaterialSpec), staggered, metrics, createCallback(sender, silent, quiet, metrics));
+            }
+            return true;
+        }
+
+        StandardScatterLogic logic = libraryLogic.get();
+
+        // setup the logic with our values
+        logic.setCentre(centre);
+        logic.setMaxAttempts(maxAttemptsSpec.value(options));
+        logic.setRadius(radiusSpec.value(options));
+
+        // only set the materials if any materials wasn't set
+        // scatterer uses any material if none provided
+        if (!options.has(anyMaterialSpec)) {
+            logic.setMaterials(materials.getAllowed());
+        }
+
         CircularDeadZoneBuilder aroundPlayers = new CircularDeadZoneBuilder(minRadiusSpec.value(options));
 
         List<DeadZone> initial = Lists.newArrayList();
@@ -225,62 +568,256 @@ public class ScatterCommand extends OptionCommand {
 
         int reattempts = reattemptsSpec.value(options);
 
+        // the library doesn't report attempts or why locations were rejected, only the time is known
+        ScatterMetrics metrics = new ScatterMetrics(world.getName(), style.name(), seed, scatter.size(), ScatterMetrics.Mode.SYNC);
+        metricsStore.add(metrics);
+        metrics.startSearch();
+        long start = System.nanoTime();
+
+        ScatterLocationException failure = null;
         for (int i = 0; i < reattempts; i++) {
             try {
-                Set<Scatterable> scatter = Sets.newHashSet();
+                List<Location> locations = Lists.newArrayList(scatterer.getScatterLocations(scatter.size()));
+                List<Location> spares = findSpares(logic, initial, aroundPlayers, toScatter, locations);
+                locations.addAll(spares);
 
-                if (options.has(useTeamsSpec)) {
-                    Scoreboard scoreboard = Bukkit.getScoreboardManager().getMainScoreboard();
+                long taken = System.nanoTime() - start;
+                metrics.endSearch(i + 1);
+                metrics.recordSearch(0, scatter.size(), 0, 0, taken, taken);
 
-                    for (Player player : toScatter) {
-                        Team team = scoreboard.getPlayerTeam(player);
+                broadcastStart(sender, scatter.size(), silent);
+                startIndex(world, centre, style, Optional.<AreaMask>absent(), options, seed).reserve(spares);
 
-                        // add as a solo if no team set
-                        scatter.add(team == null ? Scatterable.from(player) : Scatterable.from(team));
-                    }
-                } else {
-                    for (Player player : toScatter) {
-                        scatter.add(Scatterable.from(player));
+                teleporter.teleport(world, locations, Lists.newArrayList(scatter), perTeleportSpec.value(options), ticksPerTeleport.value(options), options.has(adaptiveSpec), options.has(anyMaterialSpec), staggered, metrics, createCallback(sender, silent, quiet, metrics));
+
+                return true;
+            } catch (ScatterLocationException e) {
+                failure = e;
+                sender.sendMessage(String.format(FAILED_ATTEMPT, i + 1));
+            }
+        }
+
+        long taken = System.nanoTime() - start;
+        metrics.endSearch(reattempts);
+        metrics.recordSearch(0, 0, 0, 0, taken, taken);
+        metrics.fail(failure);
+        metricsStore.save(metrics);
+
+        sender.sendMessage(HIT_MAX_ATTEMPTS);
+        return true;
+    }
+
+    // the library finds every location or none, spares get a single go of their own afterwards so a
+    // scatter that only just fits isn't failed by them
+    protected List<Location> findSpares(StandardScatterLogic logic, List<DeadZone> initial, DeadZoneBuilder aroundPlayers, List<Player> toScatter, List<Location> found) {
+        if (reserveLocations == 0) return ImmutableList.of();
+
+        List<DeadZone> zones = Lists.newArrayList(initial);
+        for (Location location : found) {
+            zones.add(aroundPlayers.buildForLocation(location));
+        }
+
+        Scatterer scatterer = new DefaultScatterer(logic, zones, aroundPlayers);
+        scatterer.addDeadZonesForPlayersNotInList(toScatter);
+
+        try {
+            return scatterer.getScatterLocations(reserveLocations);
+        } catch (ScatterLocationException e) {
+            return ImmutableList.of();
+        }
+    }
+
+    // kept after the scatter for /sct late, sets are recorded as they land
+    protected PlacementIndex startIndex(World world, Location centre, ScatterStyle style, Optional<AreaMask> mask, OptionSet options, long seed) {
+        DeadZoneStore placed = createDeadZoneStore(options);
+
+        // players not in the scatter have moved by the time anyone joins late, only spawn is kept
+        if (options.has(avoidSpawnSpec)) {
+            placed.add(new CircularZone(centre.getX(), centre.getZ(), avoidSpawnSpec.value(options)));
+        }
+
+        // late joiners are placed at random in the same shape as the scatter
+        double radius = radiusSpec.value(options);
+        CandidateGenerator generator = style == ScatterStyle.CIRCULAR || style == ScatterStyle.SPIRAL
+                ? new RandomCircleCandidates(centre.getX(), centre.getZ(), radius)
+                : new RandomSquareCandidates(centre.getX(), centre.getZ(), radius);
+
+        Optional<MaterialTable> checked = options.has(anyMaterialSpec) ? Optional.<MaterialTable>absent() : Optional.of(materials);
+
+        PlacementIndex index = new PlacementIndex(world, generator, placed, mask, checked, minRadiusSpec.value(options), maxAttemptsSpec.value(options), seed);
+        placements.start(index);
+        return index;
+    }
+
+    protected Optional<AreaMask> createMask(World world, Location centre, OptionSet options) {
+        List<Region> anyOf = Lists.newArrayList();
+        List<Region> allOf = Lists.newArrayList();
+
+        if (options.has(regionSpec)) {
+            List<Double> corners = regionSpec.values(options);
+
+            if (corners.size() != 4) throw new InvalidRegionException(regionSpec.options());
+
+            anyOf.add(new RectangleRegion(corners.get(0), corners.get(1), corners.get(2), corners.get(3)));
+        }
+
+        if (options.has(polygonSpec)) {
+            List<Double> corners = polygonSpec.values(options);
+
+            if (corners.size() < 6 || corners.size() % 2 != 0) throw new InvalidRegionException(polygonSpec.options());
+
+            double[] xs = new double[corners.size() / 2];
+            double[] zs = new double[corners.size() / 2];
+            for (int i = 0; i < xs.length; i++) {
+                xs[i] = corners.get(i * 2);
+                zs[i] = corners.get(i * 2 + 1);
+            }
+
+            anyOf.add(new PolygonRegion(xs, zs));
+        }
+
+        if (options.has(borderSpec)) {
+            WorldBorder border = world.getWorldBorder();
+            double half = border.getSize() / 2;
+            Location borderCentre = border.getCenter();
+
+            allOf.add(new RectangleRegion(borderCentre.getX() - half, borderCentre.getZ() - half, borderCentre.getX() + half, borderCentre.getZ() + half));
+        }
+
+        Collection<Biome> biomes = options.has(excludeBiomesSpec) ? excludeBiomesSpec.values(options) : excludedBiomes;
+
+        if (anyOf.isEmpty() && allOf.isEmpty() && biomes.isEmpty()) return Optional.absent();
+
+        return Optional.of(new AreaMask(centre.getX(), centre.getZ(), radiusSpec.value(options), anyOf, allOf, biomes));
+    }
+
+    protected List<CircularZone> getInitialZones(World world, Location centre, List<Player> toScatter, OptionSet options) {
+        List<CircularZone> zones = Lists.newArrayList();
+
+        // build an area around the spawn if required
+        if (options.has(avoidSpawnSpec)) {
+            zones.add(new CircularZone(centre.getX(), centre.getZ(), avoidSpawnSpec.value(options)));
+        }
+
+        double minRadius = minRadiusSpec.value(options);
+
+        // add a dead zone for every player not being scattered
+        if (minRadius > 0) {
+            for (Player player : Bukkit.getOnlinePlayers()) {
+                if (toScatter.contains(player) || !player.getWorld().equals(world)) continue;
+
+                Location location = player.getLocation();
+                zones.add(new CircularZone(location.getX(), location.getZ(), minRadius));
+            }
+        }
+
+        return zones;
+    }
+
+    protected DeadZoneStore createDeadZoneStore(OptionSet options) {
+        if (options.has(linearZonesSpec)) return new ListDeadZoneStore();
+
+        // grid cells sized to the minimum radius so most lookups only hit a handful of zones
+        return new GridDeadZoneStore(Math.max(minRadiusSpec.value(options), MIN_GRID_CELL_SIZE));
+    }
+
+    protected Set<Scatterable> getScatterables(List<Player> players, boolean useTeams) {
+        Set<Scatterable> scatter = Sets.newHashSet();
+
+        if (useTeams) {
+            Scoreboard scoreboard = Bukkit.getScoreboardManager().getMainScoreboard();
+
+            // one pass over every team instead of a lookup per player, members are read again
+            // when the team is teleported so anyone joining or leaving it in the meantime counts
+            Map<UUID, Team> playerTeams = Maps.newHashMap();
+            for (Team team : scoreboard.getTeams()) {
+                for (OfflinePlayer member : team.getPlayers()) {
+                    if (member.isOnline()) {
+                        playerTeams.put(member.getUniqueId(), team);
                     }
                 }
+            }
 
-                List<Location> locations = scatterer.getScatterLocations(scatter.size());
+            Team team;
+            for (Player player : players) {
+                team = playerTeams.get(player.getUniqueId());
 
-                final boolean silent = options.has(silentSpec);
+                // add as a solo if no team set
+                scatter.add(team == null ? Scatterable.from(player) : Scatterable.from(team));
+            }
+        } else {
+            for (Player player : players) {
+                scatter.add(Scatterable.from(player));
+            }
+        }
 
-                if (!silent) {
-                    Bukkit.broadcastMessage(String.format(STARTING_SCATTER, scatter.size()));
-                } else {
-                    sender.sendMessage(String.format(STARTING_SCATTER, scatter.size()));
+        return scatter;
+    }
+
+    protected void broadcastStart(CommandSender sender, int count, boolean silent) {
+        if (!silent) {
+            Bukkit.broadcastMessage(String.format(STARTING_SCATTER, count));
+        } else {
+            sender.sendMessage(String.format(STARTING_SCATTER, count));
+        }
+    }
+
+    protected Teleporter.Callback createCallback(final CommandSender sender, final boolean silent, final boolean quiet, final ScatterMetrics metrics) {
+        // progress goes out on its own timer, sets finishing in between are rolled into one message
+        final Optional<ProgressBroadcaster> progress = quiet
+                ? Optional.<ProgressBroadcaster>absent()
+                : Optional.of(new ProgressBroadcaster(sender, silent));
+
+        if (progress.isPresent()) {
+            progress.get().runTaskTimer(plugin, progressTicks, progressTicks);
+        }
+
+        return new Teleporter.Callback() {
+            @Override
+            public void onSetTeleported(List<Scatterable> scatterables, List<Location> locations) {
+                placements.record(scatterables, locations);
+
+                if (quiet) return;
+
+                for (int i = 0; i < scatterables.size(); i++) {
+                    scatterables.get(i).sendNotice(locations.get(i));
                 }
+            }
 
-                teleporter.teleport(locations, Lists.newArrayList(scatter), perTeleportSpec.value(options), ticksPerTeleport.value(options), new Teleporter.Callback() {
-                    @Override
-                    public void onUpdate(int completed, int total) {
-                        if (silent) {
-                            sender.sendMessage(String.format(UPDATE_MESSAGE, completed, total));
-                        } else {
-                            Bukkit.broadcastMessage(String.format(UPDATE_MESSAGE, completed, total));
-                        }
-                    }
+            @Override
+            public void onUpdate(int completed, int total) {
+                if (progress.isPresent()) {
+                    progress.get().update(completed, total);
+                }
+            }
 
-                    @Override
-                    public void onComplete() {
-                        if (silent) {
-                            sender.sendMessage(SCATTERED);
-                        } else {
-                            Bukkit.broadcastMessage(SCATTERED);
-                        }
-                    }
-                });
+            @Override
+            public void onComplete() {
+                if (progress.isPresent()) {
+                    progress.get().cancel();
+                }
 
-                return true;
-            } catch (ScatterLocationException e) {
-                sender.sendMessage(ChatColor.RED + "Failed to find locations for all players, attempt #" + (i + 1));
+                metrics.complete();
+                metricsStore.save(metrics);
+
+                if (silent) {
+                    sender.sendMessage(SCATTERED);
+                } else {
+                    Bukkit.broadcastMessage(SCATTERED);
+                }
             }
-        }
 
-        sender.sendMessage(ChatColor.RED + "Hit max attempts to scatter. Try a larger radius (-r), smaller minimum distance (-min) or allowing more blocks (-a).");
-        return true;
+            @Override
+            public void onFailure(Throwable cause) {
+                if (progress.isPresent()) {
+                    progress.get().cancel();
+                }
+
+                metrics.fail(cause);
+                metricsStore.save(metrics);
+
+                sender.sendMessage(HIT_MAX_ATTEMPTS);
+            }
+        };
     }
 }
@@ -1,5 +1,7 @@
 package gg.uhc.scatterer;
 
+import com.google.common.base.Optional;
+import gg.uhc.scatterer.search.*;
 import gg.uhc.scatterlib.logic.RandomCircleScatterLogic;
 import gg.uhc.scatterlib.logic.RandomSquareScatterLogic;
 import gg.uhc.scatterlib.logic.StandardScatterLogic;
@@ -9,18 +11,49 @@ import java.util.Random;
 public enum ScatterStyle {
     CIRCULAR {
         @Override
-        public StandardScatterLogic provide() {
-            return new RandomCircleScatterLogic(RANDOM);
+        public Optional<StandardScatterLogic> provide(Random random) {
+            return Optional.<StandardScatterLogic>of(new RandomCircleScatterLogic(random));
+        }
+
+        @Override
+        public CandidateGenerator candidates(double centreX, double centreZ, double radius, int count, long seed) {
+            return new RandomCircleCandidates(centreX, centreZ, radius);
         }
     },
     SQUARE {
         @Override
-        public StandardScatterLogic provide() {
-            return new RandomSquareScatterLogic(RANDOM);
+        public Optional<StandardScatterLogic> provide(Random random) {
+            return Optional.<StandardScatterLogic>of(new RandomSquareScatterLogic(random));
+        }
+
+        @Override
+        public CandidateGenerator candidates(double centreX, double centreZ, double radius, int count, long seed) {
+            return new RandomSquareCandidates(centreX, centreZ, radius);
+        }
+    },
+    SPIRAL {
+        @Override
+        public CandidateGenerator candidates(double centreX, double centreZ, double radius, int count, long seed) {
+            return new SpiralCandidates(centreX, centreZ, radius, count);
+        }
+    },
+    JITTERED_GRID {
+        @Override
+        public CandidateGenerator candidates(double centreX, double centreZ, double radius, int count, long seed) {
+            return new JitteredGridCandidates(centreX, centreZ, radius, count, seed);
+        }
+    },
+    POISSON_DISK {
+        @Override
+        public CandidateGenerator candidates(double centreX, double centreZ, double radius, int count, long seed) {
+            return new PoissonDiskCandidates(centreX, centreZ, radius, count, seed);
         }
     };
 
-    static Random RANDOM = new Random();
+    // styles without a bukkit-scatter logic always use the background search
+    public Optional<StandardScatterLogic> provide(Random random) {
+        return Optional.absent();
+    }
 
-    public abstract StandardScatterLogic provide();
-}
\ No newline at end of file
+    public abstract CandidateGenerator candidates(double centreX, double centreZ, double radius, int count, long seed);
+}
@@ -1,15 +1,26 @@
 package gg.uhc.scatterer;
 
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.Location;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
 import org.bukkit.scoreboard.Team;
 
+import java.util.List;
+import java.util.UUID;
+
 public abstract class Scatterable {
 
     protected static final String NOTICE = ChatColor.AQUA + "You were scattered to %d:%d:%d %s";
 
+    // prefixes for getId, ids stay the same across restarts so they can be saved
+    protected static final String PLAYER_PREFIX = "player:";
+    protected static final String TEAM_PREFIX = "team:";
+
     static class PlayerScatterable extends Scatterable {
 
         protected final Player player;
@@ -19,11 +30,20 @@ public abstract class Scatterable {
         }
 
         @Override
-        public void teleport(Location location) {
-            player.teleport(location);
+        public List<Player> getPlayers() {
+            return player.isOnline() ? ImmutableList.of(player) : ImmutableList.<Player>of();
+        }
+
+        @Override
+        public void sendNotice(Location location) {
             player.sendMessage(String.format(NOTICE, location.getBlockX(), location.getBlockY(), location.getBlockZ(), "by yourself"));
         }
 
+        @Override
+        public String getId() {
+            return PLAYER_PREFIX + player.getUniqueId();
+        }
+
         @Override
         public boolean equals(Object object) {
             return object instanceof PlayerScatterable && ((PlayerScatterable) object).player.equals(this.player);
@@ -43,16 +63,33 @@ public abstract class Scatterable {
             this.team = team;
         }
 
+        // read again each time, players can join or leave the team while the scatter runs
         @Override
-        public void teleport(Location location) {
-            String message = String.format(NOTICE, location.getBlockX(), location.getBlockY(), location.getBlockZ(), "with team " + team.getName());
+        public List<Player> getPlayers() {
+            List<Player> online = Lists.newArrayList();
 
-            for (OfflinePlayer player : team.getPlayers()) {
-                if (player.isOnline()) {
-                    player.getPlayer().teleport(location);
-                    player.getPlayer().sendMessage(message);
+            for (OfflinePlayer member : team.getPlayers()) {
+                if (member.isOnline()) {
+                    online.add(member.getPlayer());
                 }
             }
+
+            return online;
+        }
+
+        // formatted once for the whole team
+        @Override
+        public void sendNotice(Location location) {
+            String message = String.format(NOTICE, location.getBlockX(), location.getBlockY(), location.getBlockZ(), "with team " + team.getName());
+
+            for (Player member : getPlayers()) {
+                member.sendMessage(message);
+            }
+        }
+
+        @Override
+        public String getId() {
+            return TEAM_PREFIX + team.getName();
         }
 
         @Override
@@ -74,6 +111,40 @@ public abstract class Scatterable {
         return new TeamScatterable(team);
     }
 
+    // finds the scatterable for an id from getId, absent if the player is offline or the team is gone
+    public static Optional<Scatterable> fromId(String id) {
+        if (id.startsWith(PLAYER_PREFIX)) {
+            UUID uuid;
+            try {
+                uuid = UUID.fromString(id.substring(PLAYER_PREFIX.length()));
+            } catch (IllegalArgumentException e) {
+                return Optional.absent();
+            }
+
+            Player player = Bukkit.getPlayer(uuid);
+            return player == null ? Optional.<Scatterable>absent() : Optional.of(from(player));
+        }
+
+        if (id.startsWith(TEAM_PREFIX)) {
+            Team team = Bukkit.getScoreboardManager().getMainScoreboard().getTeam(id.substring(TEAM_PREFIX.length()));
+            return team == null ? Optional.<Scatterable>absent() : Optional.of(from(team));
+        }
+
+        return Optional.absent();
+    }
+
+    // every online player goes at once
+    public void teleport(Location location) {
+        for (Player player : getPlayers()) {
+            player.teleport(location);
+        }
+    }
+
+    // online players that are moved by teleport, in the order they're moved
+    public abstract List<Player> getPlayers();
+
+    // tells the players where they were sent, called after the whole set is teleported
+    public abstract void sendNotice(Location location);
 
-    public abstract void teleport(Location location);
+    public abstract String getId();
 }
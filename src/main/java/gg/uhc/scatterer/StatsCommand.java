@@ -0,0 +1,106 @@
+package gg.uhc.scatterer;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import gg.uhc.scatterer.metrics.MetricsStore;
+import gg.uhc.scatterer.metrics.ScatterMetrics;
+import gg.uhc.scatterer.teleportation.ChunkRetention;
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabExecutor;
+
+import java.util.List;
+
+public class StatsCommand implements TabExecutor {
+
+    protected static final String NO_STATS = ChatColor.RED + "No scatters have been run yet";
+    protected static final String INVALID_INDEX = ChatColor.RED + "Only the last %d scatters are kept, use a number from 1 to %d";
+    protected static final String HEADER = ChatColor.GOLD + "Scatter of %d players/teams in %s (%s, %s): %s, %d teleported";
+    protected static final String SEARCH = ChatColor.AQUA + "Search: %.1fms over %d round/s, %.1fms worst tick";
+    protected static final String REJECTIONS = ChatColor.AQUA + "Attempts: %.2f per placement, %d rejected by dead zones, %d rejected by blocks";
+    protected static final String FILTERS = ChatColor.AQUA + "Filters: %d outside the regions, %d in excluded biomes";
+    protected static final String SNAPSHOTS = ChatColor.AQUA + "Snapshots: %d chunks captured, %d of them loaded for it";
+    protected static final String LANDINGS = ChatColor.AQUA + "Landings: %d moved to a safe spot close by, %d given a spare location, %d teleported with nowhere safe";
+    protected static final String CHUNKS = ChatColor.AQUA + "Chunks: %d loaded, %d already loaded, %.1fms loading, at most %d kept loaded";
+    protected static final String PINNED = ChatColor.GRAY + "Chunks kept loaded for scatters right now: %d";
+    protected static final String SETS = ChatColor.AQUA + "Sets: %d, %.2fms average teleport time, %.2fms worst, %d ticks held back by chunks or the shared budget";
+    protected static final String TICKS = ChatColor.AQUA + "Ticks: %.1fms before, %.1fms average during, %.1fms worst";
+    protected static final String DUMPED = ChatColor.GRAY + "Full details are saved in the %s folder after each scatter";
+
+    protected final MetricsStore store;
+    protected final ChunkRetention retention;
+
+    public StatsCommand(MetricsStore store, ChunkRetention retention) {
+        this.store = store;
+        this.retention = retention;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        List<ScatterMetrics> recent = store.getRecent();
+
+        sender.sendMessage(String.format(PINNED, retention.getPinnedCount()));
+
+        if (recent.isEmpty()) {
+            sender.sendMessage(NO_STATS);
+            return true;
+        }
+
+        // 1 is the latest scatter
+        int index = 1;
+        if (args.length > 0) {
+            try {
+                index = Integer.parseInt(args[0]);
+            } catch (NumberFormatException e) {
+                index = -1;
+            }
+        }
+
+        if (index < 1 || index > recent.size()) {
+            sender.sendMessage(String.format(INVALID_INDEX, recent.size(), recent.size()));
+            return true;
+        }
+
+        ScatterMetrics metrics = recent.get(index - 1);
+
+        sender.sendMessage(String.format(HEADER, metrics.getCount(), metrics.getWorld(), metrics.getMode(), metrics.getStyle(), metrics.getOutcome(), metrics.getTeleported()));
+        sender.sendMessage(String.format(SEARCH, metrics.getSearchMillis(), metrics.getRounds(), metrics.getMaxSearchTickMillis()));
+
+        // the library used for sync scatters doesn't report its attempts
+        if (metrics.getMode() != ScatterMetrics.Mode.SYNC) {
+            sender.sendMessage(String.format(REJECTIONS, metrics.getAttemptsPerPlacement(), metrics.getDeadZoneRejections(), metrics.getBlockRejections()));
+        }
+
+        if (metrics.getRegionRejections() > 0 || metrics.getBiomeRejections() > 0) {
+            sender.sendMessage(String.format(FILTERS, metrics.getRegionRejections(), metrics.getBiomeRejections()));
+        }
+
+        if (metrics.getSnapshotsCaptured() > 0) {
+            sender.sendMessage(String.format(SNAPSHOTS, metrics.getSnapshotsCaptured(), metrics.getSnapshotChunksLoaded()));
+        }
+
+        if (metrics.getLandingsMoved() > 0 || metrics.getLandingsReplaced() > 0 || metrics.getLandingsUnsafe() > 0) {
+            sender.sendMessage(String.format(LANDINGS, metrics.getLandingsMoved(), metrics.getLandingsReplaced(), metrics.getLandingsUnsafe()));
+        }
+
+        sender.sendMessage(String.format(CHUNKS, metrics.getChunksLoaded(), metrics.getChunksAlreadyLoaded(), metrics.getChunkLoadMillis(), metrics.getMaxPinnedChunks()));
+        sender.sendMessage(String.format(SETS, metrics.getSets(), metrics.getAverageSetMillis(), metrics.getMaxSetMillis(), metrics.getStalledTicks()));
+        sender.sendMessage(String.format(TICKS, metrics.getBaselineTickMillis(), metrics.getAverageTickMillis(), metrics.getMaxTickMillis()));
+        sender.sendMessage(String.format(DUMPED, MetricsStore.FOLDER));
+        return true;
+    }
+
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        if (args.length != 1) return ImmutableList.of();
+
+        List<String> indexes = Lists.newArrayList();
+        for (int i = 1; i <= store.getRecent().size(); i++) {
+            if (String.valueOf(i).startsWith(args[0])) {
+                indexes.add(String.valueOf(i));
+            }
+        }
+        return indexes;
+    }
+}
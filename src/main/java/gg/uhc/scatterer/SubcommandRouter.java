@@ -0,0 +1,71 @@
+package gg.uhc.scatterer;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.bukkit.Bukkit;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabExecutor;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+// Sends /sct <name> ... to the registered subcommand, anything else goes to the default command.
+// An online player with the same name as a subcommand is scattered instead, /sct <player> has to
+// keep working for them
+public class SubcommandRouter implements TabExecutor {
+
+    protected final TabExecutor defaultCommand;
+    protected final Map<String, TabExecutor> subcommands = Maps.newTreeMap();
+
+    public SubcommandRouter(TabExecutor defaultCommand) {
+        this.defaultCommand = defaultCommand;
+    }
+
+    public void register(String name, TabExecutor executor) {
+        subcommands.put(name.toLowerCase(), executor);
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (args.length > 0) {
+            TabExecutor subcommand = subcommands.get(args[0].toLowerCase());
+
+            if (subcommand != null && Bukkit.getPlayerExact(args[0]) == null) {
+                return subcommand.onCommand(sender, command, label + " " + args[0], Arrays.copyOfRange(args, 1, args.length));
+            }
+        }
+
+        return defaultCommand.onCommand(sender, command, label, args);
+    }
+
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        if (args.length > 1) {
+            TabExecutor subcommand = subcommands.get(args[0].toLowerCase());
+
+            if (subcommand != null && Bukkit.getPlayerExact(args[0]) == null) {
+                return subcommand.onTabComplete(sender, command, alias + " " + args[0], Arrays.copyOfRange(args, 1, args.length));
+            }
+        }
+
+        List<String> completions = Lists.newArrayList();
+        List<String> defaults = defaultCommand.onTabComplete(sender, command, alias, args);
+
+        if (defaults != null) {
+            completions.addAll(defaults);
+        }
+
+        // offer the subcommand names for the first argument
+        if (args.length == 1) {
+            for (String name : subcommands.keySet()) {
+                if (name.startsWith(args[0].toLowerCase())) {
+                    completions.add(name);
+                }
+            }
+        }
+
+        return completions;
+    }
+}
@@ -0,0 +1,30 @@
+package gg.uhc.scatterer.conversion;
+
+import com.google.common.base.Joiner;
+import gg.uhc.flagcommands.joptsimple.ValueConversionException;
+import gg.uhc.flagcommands.joptsimple.ValueConverter;
+import org.bukkit.block.Biome;
+
+public class BiomeConverter implements ValueConverter<Biome> {
+
+    protected static final String VALUES = Joiner.on("|").join(Biome.values());
+
+    @Override
+    public Biome convert(String value) {
+        try {
+            return Biome.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ValueConversionException("Unknown biome: " + value, e);
+        }
+    }
+
+    @Override
+    public Class<Biome> valueType() {
+        return Biome.class;
+    }
+
+    @Override
+    public String valuePattern() {
+        return VALUES;
+    }
+}
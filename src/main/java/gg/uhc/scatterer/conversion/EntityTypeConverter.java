@@ -0,0 +1,30 @@
+package gg.uhc.scatterer.conversion;
+
+import com.google.common.base.Joiner;
+import gg.uhc.flagcommands.joptsimple.ValueConversionException;
+import gg.uhc.flagcommands.joptsimple.ValueConverter;
+import org.bukkit.entity.EntityType;
+
+public class EntityTypeConverter implements ValueConverter<EntityType> {
+
+    protected static final String VALUES = Joiner.on("|").join(EntityType.values());
+
+    @Override
+    public EntityType convert(String value) {
+        try {
+            return EntityType.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ValueConversionException("Unknown entity type: " + value, e);
+        }
+    }
+
+    @Override
+    public Class<EntityType> valueType() {
+        return EntityType.class;
+    }
+
+    @Override
+    public String valuePattern() {
+        return VALUES;
+    }
+}
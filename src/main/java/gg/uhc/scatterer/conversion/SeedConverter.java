@@ -0,0 +1,26 @@
+package gg.uhc.scatterer.conversion;
+
+import gg.uhc.flagcommands.joptsimple.ValueConverter;
+
+// numbers are used as is, anything else uses its hash code like world seeds do
+public class SeedConverter implements ValueConverter<Long> {
+
+    @Override
+    public Long convert(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return (long) value.hashCode();
+        }
+    }
+
+    @Override
+    public Class<Long> valueType() {
+        return Long.class;
+    }
+
+    @Override
+    public String valuePattern() {
+        return "seed";
+    }
+}
@@ -0,0 +1,343 @@
+package gg.uhc.scatterer.entities;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import gg.uhc.scatterer.search.CandidateGenerator;
+import gg.uhc.scatterer.search.ChunkColumns;
+import gg.uhc.scatterer.search.CircularZone;
+import gg.uhc.scatterer.search.ColumnCache;
+import gg.uhc.scatterer.search.DeadZoneStore;
+import gg.uhc.scatterer.search.MaterialTable;
+import gg.uhc.scatterer.search.SplitMixRandom;
+import gg.uhc.scatterer.teleportation.HilbertOrder;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitRunnable;
+
+// Scatters thousands of entities without a Location, Scatterable or dead zone for each of them.
+// Each position found is packed into a single long, x and z in 26 bits each and the Y of the top
+// block in 12, the same way the server packs block positions. Searches a few block checks each
+// tick from seeded batches of candidates like the async search, then spawns (or moves) a tick's
+// budget of entities at a time. Positions are placed in Hilbert order of their chunks so every
+// entity in a chunk is placed while it's loaded and the next chunk is usually next to it
+public class EntityScatter extends BukkitRunnable {
+
+    public interface Callback {
+        // the search finished, found is less than required if it ran out of attempts
+        void onSearched(int found, int required);
+
+        void onFinished(int placed, int chunksLoaded, long millis);
+    }
+
+    protected static final int BATCH_SIZE = 64;
+
+    protected static final int COORD_BITS = 26;
+    protected static final int Y_BITS = 12;
+    protected static final long COORD_MASK = (1L << COORD_BITS) - 1;
+    protected static final long Y_MASK = (1L << Y_BITS) - 1;
+
+    protected final World world;
+    protected final EntityType type;
+    protected final CandidateGenerator generator;
+    protected final Callback callback;
+    protected final int required;
+    protected final int checksPerTick;
+    protected final int perTick;
+
+    protected Optional<MaterialTable> materials = Optional.absent();
+    protected Optional<ColumnCache> columns = Optional.absent();
+    protected Optional<DeadZoneStore> zones = Optional.absent();
+    // entities to move instead of spawning new ones, cleared as each is moved
+    protected Entity[] targets = null;
+    protected double minRadius = 0;
+    protected int maxAttempts = 250;
+    protected long seed = System.nanoTime();
+
+    protected final long[] positions;
+    protected final double[] xs = new double[BATCH_SIZE];
+    protected final double[] zs = new double[BATCH_SIZE];
+    // reused for every entity, spawning and teleporting both copy out of it
+    protected final Location location;
+
+    protected boolean searching = true;
+    protected long nextBatch = 0;
+    protected int cursor = BATCH_SIZE;
+    protected int attempts = 0;
+    protected int found = 0;
+    protected int placed = 0;
+    // positions from cached columns that weren't safe any more once their chunk was loaded
+    protected int skipped = 0;
+    protected int chunksLoaded = 0;
+    protected long start;
+
+    public EntityScatter(World world, EntityType type, CandidateGenerator generator, Callback callback, int required, int checksPerTick, int perTick) {
+        Preconditions.checkArgument(required > 0);
+        this.world = world;
+        this.type = type;
+        this.generator = generator;
+        this.callback = callback;
+        this.required = required;
+        this.checksPerTick = checksPerTick;
+        this.perTick = perTick;
+        this.positions = new long[required];
+        this.location = new Location(world, 0, 0, 0);
+    }
+
+    public static long pack(int x, int y, int z) {
+        return ((x & COORD_MASK) << (COORD_BITS + Y_BITS)) | ((z & COORD_MASK) << Y_BITS) | (y & Y_MASK);
+    }
+
+    public static int unpackX(long packed) {
+        return (int) (packed >> (COORD_BITS + Y_BITS));
+    }
+
+    public static int unpackZ(long packed) {
+        return (int) (packed << COORD_BITS >> (COORD_BITS + Y_BITS));
+    }
+
+    public static int unpackY(long packed) {
+        return (int) (packed & Y_MASK);
+    }
+
+    public void setMaterials(MaterialTable materials) {
+        this.materials = Optional.of(materials);
+    }
+
+    public void setColumnCache(ColumnCache columns) {
+        this.columns = Optional.of(columns);
+    }
+
+    // zones are only kept for a minimum radius, thousands of them are a lot more than the positions
+    public void setMinRadius(DeadZoneStore zones, double minRadius) {
+        this.zones = Optional.of(zones);
+        this.minRadius = minRadius;
+    }
+
+    public void setTargets(Entity[] targets) {
+        Preconditions.checkArgument(targets.length == required);
+        this.targets = targets;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public int getPlaced() {
+        return placed - skipped;
+    }
+
+    public void start(Plugin plugin) {
+        start = System.nanoTime();
+        runTaskTimer(plugin, 1, 1);
+    }
+
+    @Override
+    public void run() {
+        if (searching) {
+            search();
+        } else {
+            place();
+        }
+    }
+
+    protected void search() {
+        double x, z;
+        int y;
+        int budget = checksPerTick;
+        while (budget > 0) {
+            if (cursor == BATCH_SIZE) {
+                generator.generate(nextBatch * BATCH_SIZE, SplitMixRandom.forStream(seed, nextBatch), xs, zs);
+                nextBatch++;
+                cursor = 0;
+            }
+
+            x = xs[cursor];
+            z = zs[cursor];
+            cursor++;
+            attempts++;
+
+            // dead zones are checked first, they don't use up the tick's block checks
+            if (!zones.isPresent() || zones.get().isAllowed(x, z)) {
+                budget--;
+                y = validate((int) Math.floor(x), (int) Math.floor(z));
+
+                if (y >= 0) {
+                    accept((int) Math.floor(x), y, (int) Math.floor(z));
+
+                    if (found == required) {
+                        finishSearch();
+                        return;
+                    }
+
+                    continue;
+                }
+            }
+
+            if (attempts >= maxAttempts) {
+                finishSearch();
+                return;
+            }
+        }
+    }
+
+    protected void accept(int blockX, int y, int blockZ) {
+        positions[found++] = pack(blockX, y, blockZ);
+        attempts = 0;
+
+        if (zones.isPresent()) {
+            zones.get().add(new CircularZone(blockX + .5D, blockZ + .5D, minRadius));
+        }
+    }
+
+    // same rules as the search, Y of the top block or -1
+    protected int validate(int blockX, int blockZ) {
+        if (!columns.isPresent()) return validateLive(blockX, blockZ);
+
+        ChunkColumns chunk = columns.get().getColumn(world, blockX, blockZ);
+        int index = ChunkColumns.index(blockX, blockZ);
+        int y = chunk.getY(index);
+
+        if (y < 0 || !materials.isPresent()) return y;
+
+        return isSafe(chunk.getTop(index), chunk.getAbove(index), y > 0 ? chunk.getBelow(index) : 0) ? y : -1;
+    }
+
+    @SuppressWarnings("deprecation")
+    protected int validateLive(int blockX, int blockZ) {
+        // highest block Y is the first air block above the ground
+        int y = world.getHighestBlockYAt(blockX, blockZ) - 1;
+
+        if (y < 0 || !materials.isPresent()) return y;
+
+        int top = world.getBlockTypeIdAt(blockX, y, blockZ);
+        int above = world.getBlockTypeIdAt(blockX, y + 1, blockZ);
+        int below = y > 0 ? world.getBlockTypeIdAt(blockX, y - 1, blockZ) : 0;
+
+        return isSafe(top, above, below) ? y : -1;
+    }
+
+    @SuppressWarnings("deprecation")
+    protected boolean isSafe(int top, int above, int below) {
+        return materials.get().isSafe(Material.getMaterial(top), Material.getMaterial(above), Material.getMaterial(below));
+    }
+
+    // sorts what was found into chunk order and starts placing from the next tick
+    protected void finishSearch() {
+        searching = false;
+
+        int[] chunkXs = new int[found];
+        int[] chunkZs = new int[found];
+        for (int i = 0; i < found; i++) {
+            chunkXs[i] = unpackX(positions[i]) >> 4;
+            chunkZs[i] = unpackZ(positions[i]) >> 4;
+        }
+
+        int[] order = HilbertOrder.order(chunkXs, chunkZs);
+        long[] sorted = new long[found];
+        for (int i = 0; i < found; i++) {
+            sorted[i] = positions[order[i]];
+        }
+        System.arraycopy(sorted, 0, positions, 0, found);
+
+        callback.onSearched(found, required);
+
+        if (found == 0) {
+            finish();
+        }
+    }
+
+    // whole chunks at a time until the tick's budget is used, a chunk is never left half done
+    protected void place() {
+        int budget = perTick;
+        int chunkX, chunkZ;
+        boolean wasLoaded;
+        while (budget > 0 && placed < found) {
+            chunkX = unpackX(positions[placed]) >> 4;
+            chunkZ = unpackZ(positions[placed]) >> 4;
+            wasLoaded = world.isChunkLoaded(chunkX, chunkZ);
+
+            if (!wasLoaded) {
+                world.loadChunk(chunkX, chunkZ);
+                chunksLoaded++;
+            }
+
+            do {
+                placeAt(placed, positions[placed]);
+                placed++;
+                budget--;
+            } while (placed < found && unpackX(positions[placed]) >> 4 == chunkX && unpackZ(positions[placed]) >> 4 == chunkZ);
+
+            // saved with the entities in it, unless a player is close enough to keep it loaded
+            if (!wasLoaded) {
+                world.unloadChunkRequest(chunkX, chunkZ);
+            }
+        }
+
+        if (placed == found) {
+            finish();
+        }
+    }
+
+    protected void placeAt(int index, long position) {
+        int x = unpackX(position);
+        int y = unpackY(position);
+        int z = unpackZ(position);
+
+        // cached columns can be out of date, the chunk is loaded now so the real one is checked
+        if (columns.isPresent()) {
+            int live = validateLive(x, z);
+
+            if (live != y) {
+                columns.get().invalidate(x, z);
+            }
+
+            if (live < 0) {
+                if (targets != null) {
+                    targets[index] = null;
+                }
+
+                skipped++;
+                return;
+            }
+
+            y = live;
+        }
+
+        // standing on the top block
+        location.setX(x + .5D);
+        location.setY(y + 1);
+        location.setZ(z + .5D);
+
+        if (targets == null) {
+            Entity entity = world.spawnEntity(location, type);
+
+            // nobody is near them at the start, they'd be gone before anyone got there
+            if (entity instanceof LivingEntity) {
+                ((LivingEntity) entity).setRemoveWhenFarAway(false);
+            }
+            return;
+        }
+
+        Entity target = targets[index];
+        targets[index] = null;
+
+        // killed or unloaded since the scatter started
+        if (target.isValid()) {
+            target.teleport(location);
+        }
+    }
+
+    protected void finish() {
+        cancel();
+        callback.onFinished(placed - skipped, chunksLoaded, (System.nanoTime() - start) / 1000000L);
+    }
+}
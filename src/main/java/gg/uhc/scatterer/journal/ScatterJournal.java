@@ -0,0 +1,202 @@
+package gg.uhc.scatterer.journal;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import gg.uhc.scatterer.Scatterable;
+import org.bukkit.Location;
+
+import java.io.*;
+import java.util.Collection;
+import java.util.List;
+
+// Append only record of a running scatter so it can be carried on after a reload or crash.
+// Written as tab separated lines, the plan, every assignment and spare location when the scatter
+// starts (or as each location is found for streamed scatters) followed by a line for each
+// player/team as their set is teleported:
+//
+//     PLAN    world    chunk size    ticks per set    adaptive    seed    style    any material    staggered members
+//     A       id       x    y    z
+//     S       x        y    z
+//     D       id
+//
+// A spare given to a player/team gets an assignment line of its own. A line cut short by a
+// crash is ignored when reading
+public class ScatterJournal {
+
+    public static final String FOLDER = "journals";
+    public static final String EXTENSION = ".journal";
+
+    protected static final String PLAN = "PLAN";
+    protected static final String ASSIGNMENT = "A";
+    protected static final String SPARE = "S";
+    protected static final String DONE = "D";
+
+    protected static final Joiner JOINER = Joiner.on('\t');
+    protected static final Splitter SPLITTER = Splitter.on('\t');
+
+    protected final File file;
+    protected final Writer writer;
+
+    protected ScatterJournal(File file, Writer writer) {
+        this.file = file;
+        this.writer = writer;
+    }
+
+    public static File getFile(File dataFolder, String world) {
+        return new File(new File(dataFolder, FOLDER), world + EXTENSION);
+    }
+
+    // starts a new journal, replaces any older one for the same world. Locations past the last scatterable are spares
+    public static ScatterJournal create(File file, ScatterPlan plan, List<Location> locations, List<Scatterable> scatterables) throws IOException {
+        File parent = file.getParentFile();
+
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Unable to create folder " + parent);
+        }
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, false), Charsets.UTF_8));
+        ScatterJournal journal = new ScatterJournal(file, writer);
+
+        journal.writeLine(PLAN, plan.world, plan.chunkSize, plan.ticksPer, plan.adaptive, plan.seed, plan.style, plan.anyMaterial, plan.staggeredMembers);
+
+        Location location;
+        for (int i = 0; i < locations.size(); i++) {
+            location = locations.get(i);
+
+            if (i < scatterables.size()) {
+                journal.writeLine(ASSIGNMENT, scatterables.get(i).getId(), location.getX(), location.getY(), location.getZ());
+            } else {
+                journal.writeLine(SPARE, location.getX(), location.getY(), location.getZ());
+            }
+        }
+
+        writer.flush();
+        return journal;
+    }
+
+    protected void writeLine(Object... parts) throws IOException {
+        writer.write(JOINER.join(parts));
+        writer.write('\n');
+    }
+
+    // streamed scatters only know each location once it has been found
+    public void recordAssignment(Scatterable scatterable, Location location) throws IOException {
+        writeLine(ASSIGNMENT, scatterable.getId(), location.getX(), location.getY(), location.getZ());
+        writer.flush();
+    }
+
+    // streamed scatters keep anything found past the last scatterable as a spare
+    public void recordSpare(Location location) throws IOException {
+        writeLine(SPARE, location.getX(), location.getY(), location.getZ());
+        writer.flush();
+    }
+
+    // call after each set, flushed straight away so a crash loses at most the set in progress
+    public void recordDone(Collection<Scatterable> scatterables) throws IOException {
+        for (Scatterable scatterable : scatterables) {
+            writeLine(DONE, scatterable.getId());
+        }
+
+        writer.flush();
+    }
+
+    public void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // the scatter finished or was cancelled, nothing left to resume
+    public void delete() {
+        close();
+
+        if (file.exists() && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    public static ScatterPlan read(File file) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), Charsets.UTF_8));
+
+        try {
+            String line = reader.readLine();
+
+            if (line == null) throw new IOException("Journal " + file.getName() + " is empty");
+
+            List<String> parts = Lists.newArrayList(SPLITTER.split(line));
+
+            // journals from before the material and stagger settings were recorded have 7 parts
+            if ((parts.size() != 7 && parts.size() != 9) || !PLAN.equals(parts.get(0))) {
+                throw new IOException("Journal " + file.getName() + " doesn't start with a plan");
+            }
+
+            ScatterPlan plan;
+            try {
+                plan = new ScatterPlan(
+                        parts.get(1),
+                        Integer.parseInt(parts.get(2)),
+                        Integer.parseInt(parts.get(3)),
+                        Boolean.parseBoolean(parts.get(4)),
+                        Long.parseLong(parts.get(5)),
+                        parts.get(6),
+                        parts.size() == 9 && Boolean.parseBoolean(parts.get(7)),
+                        parts.size() == 9 ? Integer.parseInt(parts.get(8)) : 0
+                );
+            } catch (NumberFormatException e) {
+                throw new IOException("Journal " + file.getName() + " has an invalid plan", e);
+            }
+
+            while ((line = reader.readLine()) != null) {
+                parts = Lists.newArrayList(SPLITTER.split(line));
+
+                if (ASSIGNMENT.equals(parts.get(0)) && parts.size() == 5) {
+                    try {
+                        plan.assignments.put(parts.get(1), new double[]{
+                                Double.parseDouble(parts.get(2)),
+                                Double.parseDouble(parts.get(3)),
+                                Double.parseDouble(parts.get(4))
+                        });
+                    } catch (NumberFormatException ignored) {
+                        // partly written line
+                    }
+                } else if (SPARE.equals(parts.get(0)) && parts.size() == 4) {
+                    try {
+                        plan.spares.add(new double[]{
+                                Double.parseDouble(parts.get(1)),
+                                Double.parseDouble(parts.get(2)),
+                                Double.parseDouble(parts.get(3))
+                        });
+                    } catch (NumberFormatException ignored) {
+                        // partly written line
+                    }
+                } else if (DONE.equals(parts.get(0)) && parts.size() == 2) {
+                    plan.done.add(parts.get(1));
+                }
+            }
+
+            return plan;
+        } finally {
+            reader.close();
+        }
+    }
+
+    // world names with a journal left behind
+    public static List<String> getJournalWorlds(File dataFolder) {
+        List<String> worlds = Lists.newArrayList();
+        File[] files = new File(dataFolder, FOLDER).listFiles();
+
+        if (files == null) return worlds;
+
+        for (File file : files) {
+            if (file.getName().endsWith(EXTENSION)) {
+                worlds.add(file.getName().substring(0, file.getName().length() - EXTENSION.length()));
+            }
+        }
+
+        return worlds;
+    }
+}
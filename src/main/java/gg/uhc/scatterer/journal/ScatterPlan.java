@@ -0,0 +1,111 @@
+package gg.uhc.scatterer.journal;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// What a journal says about a scatter, the settings it ran with, where each player/team was
+// going and which of them have already been teleported
+public class ScatterPlan {
+
+    protected final String world;
+    protected final int chunkSize;
+    protected final int ticksPer;
+    protected final boolean adaptive;
+    protected final long seed;
+    protected final String style;
+    protected final boolean anyMaterial;
+    protected final int staggeredMembers;
+
+    // id from Scatterable#getId to x, y, z in the order they were going to be teleported
+    protected final Map<String, double[]> assignments = Maps.newLinkedHashMap();
+    protected final Set<String> done = Sets.newHashSet();
+    // x, y, z of locations kept for landing spots that are no longer safe
+    protected final List<double[]> spares = Lists.newArrayList();
+
+    public ScatterPlan(String world, int chunkSize, int ticksPer, boolean adaptive, long seed, String style, boolean anyMaterial, int staggeredMembers) {
+        this.world = world;
+        this.chunkSize = chunkSize;
+        this.ticksPer = ticksPer;
+        this.adaptive = adaptive;
+        this.seed = seed;
+        this.style = style;
+        this.anyMaterial = anyMaterial;
+        this.staggeredMembers = staggeredMembers;
+    }
+
+    public String getWorld() {
+        return world;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public int getTicksPer() {
+        return ticksPer;
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public String getStyle() {
+        return style;
+    }
+
+    public boolean isAnyMaterial() {
+        return anyMaterial;
+    }
+
+    public int getStaggeredMembers() {
+        return staggeredMembers;
+    }
+
+    public int getDone() {
+        return done.size();
+    }
+
+    // assignments that haven't been teleported yet in their original order
+    public Map<String, double[]> getRemaining() {
+        Map<String, double[]> remaining = Maps.newLinkedHashMap();
+
+        for (Map.Entry<String, double[]> entry : assignments.entrySet()) {
+            if (!done.contains(entry.getKey())) {
+                remaining.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        return remaining;
+    }
+
+    // spares that haven't since been given to a player/team
+    public List<double[]> getSpares() {
+        List<double[]> unused = Lists.newArrayList();
+
+        for (double[] spare : spares) {
+            if (!isAssigned(spare)) {
+                unused.add(spare);
+            }
+        }
+
+        return unused;
+    }
+
+    protected boolean isAssigned(double[] coords) {
+        for (double[] assigned : assignments.values()) {
+            if (Arrays.equals(assigned, coords)) return true;
+        }
+
+        return false;
+    }
+}
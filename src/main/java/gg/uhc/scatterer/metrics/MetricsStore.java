@@ -0,0 +1,66 @@
+package gg.uhc.scatterer.metrics;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+// Keeps the most recent scatters for /sct stats and writes each finished one to the stats folder
+public class MetricsStore {
+
+    public static final String FOLDER = "stats";
+
+    protected final Plugin plugin;
+    protected final ExecutorService workers;
+    protected final int kept;
+
+    protected final LinkedList<ScatterMetrics> recent = Lists.newLinkedList();
+
+    public MetricsStore(Plugin plugin, ExecutorService workers, int kept) {
+        this.plugin = plugin;
+        this.workers = workers;
+        this.kept = kept;
+    }
+
+    public void add(ScatterMetrics metrics) {
+        recent.addFirst(metrics);
+
+        while (recent.size() > kept) {
+            recent.removeLast();
+        }
+    }
+
+    public List<ScatterMetrics> getRecent() {
+        return ImmutableList.copyOf(recent);
+    }
+
+    // snapshots on the calling thread and saves on a worker thread
+    public void save(ScatterMetrics metrics) {
+        final YamlConfiguration config = metrics.toConfiguration();
+        final File file = new File(new File(plugin.getDataFolder(), FOLDER), getFileName(metrics));
+
+        workers.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    file.getParentFile().mkdirs();
+                    config.save(file);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+    }
+
+    protected String getFileName(ScatterMetrics metrics) {
+        return String.format("%s_%s.yml", new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss").format(new Date(metrics.getStartedAt())), metrics.getWorld());
+    }
+}
@@ -0,0 +1,373 @@
+package gg.uhc.scatterer.metrics;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Timings and counters for a single scatter, only touched on the server thread. Filled in by
+// the location search, the teleporter and the chunk preparer as the scatter runs
+public class ScatterMetrics {
+
+    public enum Mode {
+        SYNC, ASYNC, POOL, RESUME
+    }
+
+    public enum Outcome {
+        RUNNING, COMPLETED, CANCELLED, FAILED
+    }
+
+    static class SetTiming {
+        protected final int size;
+        protected final long teleportNanos;
+        protected final long chunkLoadNanos;
+        protected final int chunksLoaded;
+        protected final int chunksAlreadyLoaded;
+        protected final int stalledTicks;
+
+        SetTiming(int size, long teleportNanos, long chunkLoadNanos, int chunksLoaded, int chunksAlreadyLoaded, int stalledTicks) {
+            this.size = size;
+            this.teleportNanos = teleportNanos;
+            this.chunkLoadNanos = chunkLoadNanos;
+            this.chunksLoaded = chunksLoaded;
+            this.chunksAlreadyLoaded = chunksAlreadyLoaded;
+            this.stalledTicks = stalledTicks;
+        }
+    }
+
+    protected final String world;
+    protected final String style;
+    protected final long seed;
+    protected final int count;
+    protected final Mode mode;
+    protected final long startedAt = System.currentTimeMillis();
+
+    protected Outcome outcome = Outcome.RUNNING;
+    protected String failure = null;
+    protected long finishedAt = 0;
+
+    // location search, block and dead zone counts are only known for -async scatters
+    protected long searchStart = 0;
+    protected long searchNanos = 0;
+    protected int rounds = 0;
+    protected long attempts = 0;
+    protected long placements = 0;
+    protected long deadZoneRejections = 0;
+    protected long blockRejections = 0;
+    protected long regionRejections = 0;
+    protected long biomeRejections = 0;
+    protected long snapshotsCaptured = 0;
+    protected long snapshotChunksLoaded = 0;
+    protected long searchTickNanos = 0;
+    protected long maxSearchTickNanos = 0;
+
+    // teleporting
+    protected final List<SetTiming> sets = Lists.newArrayList();
+    protected int teleported = 0;
+    protected int maxPinnedChunks = 0;
+    // landing spots checked again right before teleporting
+    protected int landingsMoved = 0;
+    protected int landingsReplaced = 0;
+    protected int landingsUnsafe = 0;
+    protected double baselineTickMillis = 0;
+    protected int ticks = 0;
+    protected double tickMillisSum = 0;
+    protected double maxTickMillis = 0;
+
+    public ScatterMetrics(String world, String style, long seed, int count, Mode mode) {
+        this.world = world;
+        this.style = style;
+        this.seed = seed;
+        this.count = count;
+        this.mode = mode;
+    }
+
+    public void startSearch() {
+        searchStart = System.nanoTime();
+    }
+
+    public void endSearch(int rounds) {
+        this.searchNanos = System.nanoTime() - searchStart;
+        this.rounds = rounds;
+    }
+
+    public void recordSearch(long attempts, long placements, long deadZoneRejections, long blockRejections, long tickNanos, long maxTickNanos) {
+        this.attempts = attempts;
+        this.placements = placements;
+        this.deadZoneRejections = deadZoneRejections;
+        this.blockRejections = blockRejections;
+        this.searchTickNanos = tickNanos;
+        this.maxSearchTickNanos = maxTickNanos;
+    }
+
+    public void recordFilters(long regionRejections, long biomeRejections) {
+        this.regionRejections = regionRejections;
+        this.biomeRejections = biomeRejections;
+    }
+
+    public void recordSnapshots(long captured, long loaded) {
+        this.snapshotsCaptured = captured;
+        this.snapshotChunksLoaded = loaded;
+    }
+
+    public void startTeleporting(double baselineTickMillis) {
+        this.baselineTickMillis = baselineTickMillis;
+    }
+
+    public void recordTick(double tickMillis) {
+        ticks++;
+        tickMillisSum += tickMillis;
+        maxTickMillis = Math.max(maxTickMillis, tickMillis);
+    }
+
+    public void recordSet(int size, long teleportNanos, long chunkLoadNanos, int chunksLoaded, int chunksAlreadyLoaded, int stalledTicks, int pinnedChunks) {
+        sets.add(new SetTiming(size, teleportNanos, chunkLoadNanos, chunksLoaded, chunksAlreadyLoaded, stalledTicks));
+        teleported += size;
+        maxPinnedChunks = Math.max(maxPinnedChunks, pinnedChunks);
+    }
+
+    public void recordLandings(int moved, int replaced, int unsafe) {
+        landingsMoved += moved;
+        landingsReplaced += replaced;
+        landingsUnsafe += unsafe;
+    }
+
+    public void complete() {
+        finish(teleported == count ? Outcome.COMPLETED : Outcome.CANCELLED);
+    }
+
+    public void fail(Throwable cause) {
+        failure = cause.getMessage();
+        finish(Outcome.FAILED);
+    }
+
+    protected void finish(Outcome outcome) {
+        if (this.outcome != Outcome.RUNNING) return;
+
+        this.outcome = outcome;
+        this.finishedAt = System.currentTimeMillis();
+    }
+
+    public boolean isRunning() {
+        return outcome == Outcome.RUNNING;
+    }
+
+    public String getWorld() {
+        return world;
+    }
+
+    public String getStyle() {
+        return style;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public int getTeleported() {
+        return teleported;
+    }
+
+    public double getSearchMillis() {
+        return toMillis(searchNanos);
+    }
+
+    public int getRounds() {
+        return rounds;
+    }
+
+    public double getAttemptsPerPlacement() {
+        return placements == 0 ? 0 : attempts / (double) placements;
+    }
+
+    public long getDeadZoneRejections() {
+        return deadZoneRejections;
+    }
+
+    public long getBlockRejections() {
+        return blockRejections;
+    }
+
+    public long getRegionRejections() {
+        return regionRejections;
+    }
+
+    public long getBiomeRejections() {
+        return biomeRejections;
+    }
+
+    public long getSnapshotsCaptured() {
+        return snapshotsCaptured;
+    }
+
+    public long getSnapshotChunksLoaded() {
+        return snapshotChunksLoaded;
+    }
+
+    public int getLandingsMoved() {
+        return landingsMoved;
+    }
+
+    public int getLandingsReplaced() {
+        return landingsReplaced;
+    }
+
+    public int getLandingsUnsafe() {
+        return landingsUnsafe;
+    }
+
+    public double getMaxSearchTickMillis() {
+        return toMillis(maxSearchTickNanos);
+    }
+
+    public int getSets() {
+        return sets.size();
+    }
+
+    public int getChunksLoaded() {
+        int total = 0;
+        for (SetTiming set : sets) {
+            total += set.chunksLoaded;
+        }
+        return total;
+    }
+
+    public int getChunksAlreadyLoaded() {
+        int total = 0;
+        for (SetTiming set : sets) {
+            total += set.chunksAlreadyLoaded;
+        }
+        return total;
+    }
+
+    public int getMaxPinnedChunks() {
+        return maxPinnedChunks;
+    }
+
+    public double getChunkLoadMillis() {
+        long total = 0;
+        for (SetTiming set : sets) {
+            total += set.chunkLoadNanos;
+        }
+        return toMillis(total);
+    }
+
+    public double getAverageSetMillis() {
+        if (sets.isEmpty()) return 0;
+
+        long total = 0;
+        for (SetTiming set : sets) {
+            total += set.teleportNanos;
+        }
+        return toMillis(total) / sets.size();
+    }
+
+    public double getMaxSetMillis() {
+        long max = 0;
+        for (SetTiming set : sets) {
+            max = Math.max(max, set.teleportNanos);
+        }
+        return toMillis(max);
+    }
+
+    public int getStalledTicks() {
+        int total = 0;
+        for (SetTiming set : sets) {
+            total += set.stalledTicks;
+        }
+        return total;
+    }
+
+    public double getBaselineTickMillis() {
+        return baselineTickMillis;
+    }
+
+    public double getAverageTickMillis() {
+        return ticks == 0 ? 0 : tickMillisSum / ticks;
+    }
+
+    public double getMaxTickMillis() {
+        return maxTickMillis;
+    }
+
+    protected static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    // copies everything into a config so it can be saved off the server thread
+    public YamlConfiguration toConfiguration() {
+        YamlConfiguration config = new YamlConfiguration();
+
+        config.set("world", world);
+        config.set("style", style);
+        config.set("seed", seed);
+        config.set("mode", mode.name());
+        config.set("outcome", outcome.name());
+        config.set("failure", failure);
+        config.set("started at", startedAt);
+        config.set("finished at", finishedAt);
+        config.set("players/teams", count);
+        config.set("teleported", teleported);
+
+        config.set("search.millis", getSearchMillis());
+        config.set("search.rounds", rounds);
+        config.set("search.attempts", attempts);
+        config.set("search.attempts per placement", getAttemptsPerPlacement());
+        config.set("search.dead zone rejections", deadZoneRejections);
+        config.set("search.block rejections", blockRejections);
+        config.set("search.region rejections", regionRejections);
+        config.set("search.biome rejections", biomeRejections);
+        config.set("search.snapshots captured", snapshotsCaptured);
+        config.set("search.snapshot chunks loaded", snapshotChunksLoaded);
+        config.set("search.server thread millis", toMillis(searchTickNanos));
+        config.set("search.max server thread millis per tick", getMaxSearchTickMillis());
+
+        config.set("landings.moved", landingsMoved);
+        config.set("landings.replaced from reserve", landingsReplaced);
+        config.set("landings.unsafe", landingsUnsafe);
+
+        config.set("chunks.loaded", getChunksLoaded());
+        config.set("chunks.already loaded", getChunksAlreadyLoaded());
+        config.set("chunks.load millis", getChunkLoadMillis());
+        config.set("chunks.max pinned", maxPinnedChunks);
+
+        config.set("ticks.before millis", baselineTickMillis);
+        config.set("ticks.average millis", getAverageTickMillis());
+        config.set("ticks.max millis", maxTickMillis);
+        config.set("ticks.counted", ticks);
+
+        List<Map<String, Object>> setList = Lists.newArrayListWithCapacity(sets.size());
+        for (SetTiming set : sets) {
+            Map<String, Object> values = Maps.newLinkedHashMap();
+            values.put("size", set.size);
+            values.put("teleport millis", toMillis(set.teleportNanos));
+            values.put("chunk load millis", toMillis(set.chunkLoadNanos));
+            values.put("chunks loaded", set.chunksLoaded);
+            values.put("chunks already loaded", set.chunksAlreadyLoaded);
+            values.put("stalled ticks", set.stalledTicks);
+            setList.add(values);
+        }
+        config.set("sets", setList);
+
+        return config;
+    }
+}
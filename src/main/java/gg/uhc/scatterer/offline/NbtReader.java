@@ -0,0 +1,139 @@
+package gg.uhc.scatterer.offline;
+
+import com.google.common.base.Charsets;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+// Just enough of the NBT format to walk through a chunk or level.dat and pull out a few tags.
+// Reads forwards only, tags that aren't wanted are skipped over without making anything
+public class NbtReader {
+
+    public static final byte END = 0;
+    public static final byte BYTE = 1;
+    public static final byte SHORT = 2;
+    public static final byte INT = 3;
+    public static final byte LONG = 4;
+    public static final byte FLOAT = 5;
+    public static final byte DOUBLE = 6;
+    public static final byte BYTE_ARRAY = 7;
+    public static final byte STRING = 8;
+    public static final byte LIST = 9;
+    public static final byte COMPOUND = 10;
+    public static final byte INT_ARRAY = 11;
+    public static final byte LONG_ARRAY = 12;
+
+    protected final ByteBuffer buffer;
+
+    public NbtReader(byte[] data) {
+        this.buffer = ByteBuffer.wrap(data);
+    }
+
+    // type of the next tag in the current compound, END when there are no more. Anything
+    // else is followed by its name
+    public byte nextTag() {
+        return buffer.get();
+    }
+
+    // moves into the root compound, returns its name
+    public String readRoot() throws IOException {
+        if (nextTag() != COMPOUND) throw new IOException("NBT data doesn't start with a compound");
+
+        return readString();
+    }
+
+    public String readString() {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, Charsets.UTF_8);
+    }
+
+    public byte readByte() {
+        return buffer.get();
+    }
+
+    public int readInt() {
+        return buffer.getInt();
+    }
+
+    public byte[] readByteArray() {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    public int[] readIntArray() {
+        int[] ints = new int[buffer.getInt()];
+        buffer.asIntBuffer().get(ints);
+        buffer.position(buffer.position() + ints.length * 4);
+        return ints;
+    }
+
+    // moves into the named compound of the current one, skipping everything before it. False
+    // if the current compound ended without it
+    public boolean enter(String name) throws IOException {
+        byte type;
+        String tagName;
+        while ((type = nextTag()) != END) {
+            tagName = readString();
+
+            if (type == COMPOUND && tagName.equals(name)) return true;
+
+            skip(type);
+        }
+        return false;
+    }
+
+    // skips the value of a tag whose type and name were already read
+    public void skip(byte type) throws IOException {
+        switch (type) {
+            case BYTE:
+                skipBytes(1);
+                break;
+            case SHORT:
+                skipBytes(2);
+                break;
+            case INT:
+            case FLOAT:
+                skipBytes(4);
+                break;
+            case LONG:
+            case DOUBLE:
+                skipBytes(8);
+                break;
+            case BYTE_ARRAY:
+                skipBytes(buffer.getInt());
+                break;
+            case INT_ARRAY:
+                skipBytes(buffer.getInt() * 4);
+                break;
+            case LONG_ARRAY:
+                skipBytes(buffer.getInt() * 8);
+                break;
+            case STRING:
+                skipBytes(buffer.getShort() & 0xFFFF);
+                break;
+            case LIST:
+                byte elementType = buffer.get();
+                int size = buffer.getInt();
+                for (int i = 0; i < size; i++) {
+                    skip(elementType);
+                }
+                break;
+            case COMPOUND:
+                byte tagType;
+                while ((tagType = nextTag()) != END) {
+                    skip(STRING);
+                    skip(tagType);
+                }
+                break;
+            default:
+                throw new IOException("Unknown NBT tag type " + type);
+        }
+    }
+
+    // the length has to be read before the position is, it moves the position on
+    protected void skipBytes(int count) {
+        buffer.position(buffer.position() + count);
+    }
+}
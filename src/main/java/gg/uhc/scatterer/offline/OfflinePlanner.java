@@ -0,0 +1,464 @@
+package gg.uhc.scatterer.offline;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.io.CharStreams;
+import gg.uhc.flagcommands.converters.DoubleConverter;
+import gg.uhc.flagcommands.converters.IntegerConverter;
+import gg.uhc.flagcommands.joptsimple.ArgumentAcceptingOptionSpec;
+import gg.uhc.flagcommands.joptsimple.OptionException;
+import gg.uhc.flagcommands.joptsimple.OptionParser;
+import gg.uhc.flagcommands.joptsimple.OptionSet;
+import gg.uhc.flagcommands.joptsimple.OptionSpec;
+import gg.uhc.flagcommands.predicates.DoublePredicates;
+import gg.uhc.flagcommands.predicates.IntegerPredicates;
+import gg.uhc.scatterer.InvalidCoordinatesException;
+import gg.uhc.scatterer.ScatterStyle;
+import gg.uhc.scatterer.conversion.ScatterStyleConverter;
+import gg.uhc.scatterer.conversion.SeedConverter;
+import gg.uhc.scatterer.pool.LocationPool;
+import gg.uhc.scatterer.search.CandidateGenerator;
+import gg.uhc.scatterer.search.ChunkColumns;
+import gg.uhc.scatterer.search.CircularZone;
+import gg.uhc.scatterer.search.DeadZoneStore;
+import gg.uhc.scatterer.search.GridDeadZoneStore;
+import gg.uhc.scatterer.search.LocationSearchException;
+import gg.uhc.scatterer.search.MaterialTable;
+import gg.uhc.scatterer.search.SplitMixRandom;
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Makes the same pool file as /sct precompute without a running server, reading the blocks
+// straight out of the world's region files. Candidates come from the same scatter styles and
+// seeded batches as the search, the block checks run on every core and the results are used in
+// batch order so the same seed always gives the same pool however many threads are used.
+// Run from the server folder with the plugin and the spigot api on the classpath
+public class OfflinePlanner {
+
+    protected static final int BATCH_SIZE = 64;
+    // batches checked at once for each thread before their results are used
+    protected static final int BATCHES_PER_THREAD = 4;
+    protected static final double MIN_GRID_CELL_SIZE = 32;
+    protected static final int DEFAULT_POOL_SIZE = 1000;
+    protected static final String DEFAULT_OUTPUT = "plugins/Scatterer/" + LocationPool.FOLDER;
+    protected static final String DEFAULT_CONFIG = "plugins/Scatterer/config.yml";
+
+    // results of a check, anything 0 or above is the Y of the top block
+    protected static final int BLOCK_REJECTED = -1;
+    protected static final int NOT_GENERATED = -2;
+
+    protected final RegionWorld world;
+    protected final String worldName;
+    protected final ScatterStyle style;
+    protected final double centreX;
+    protected final double centreZ;
+    protected final double radius;
+    protected final CandidateGenerator generator;
+    protected final Optional<MaterialTable> materials;
+    protected final DeadZoneStore placedZones;
+    protected final double minRadius;
+    protected final int maxAttempts;
+    protected final long seed;
+
+    protected long attempts = 0;
+    protected long notGenerated = 0;
+    protected long blockRejections = 0;
+    protected long deadZoneRejections = 0;
+
+    public OfflinePlanner(RegionWorld world, String worldName, ScatterStyle style, double centreX, double centreZ, double radius, CandidateGenerator generator, Optional<MaterialTable> materials, double minRadius, int maxAttempts, long seed) {
+        this.world = world;
+        this.worldName = worldName;
+        this.style = style;
+        this.centreX = centreX;
+        this.centreZ = centreZ;
+        this.radius = radius;
+        this.generator = generator;
+        this.materials = materials;
+        this.minRadius = minRadius;
+        this.maxAttempts = maxAttempts;
+        this.seed = seed;
+
+        // grid cells sized to the minimum radius so most lookups only hit a handful of zones
+        this.placedZones = new GridDeadZoneStore(Math.max(minRadius, MIN_GRID_CELL_SIZE));
+    }
+
+    public LocationPool plan(int count, int threads) throws IOException, LocationSearchException, InterruptedException {
+        int[] xs = new int[count];
+        int[] ys = new int[count];
+        int[] zs = new int[count];
+
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        List<Future<Batch>> checking = Lists.newArrayListWithCapacity(threads * BATCHES_PER_THREAD);
+
+        int found = 0;
+        int sinceFound = 0;
+        long nextBatch = 0;
+        Batch batch;
+        double x, z;
+        int y;
+        try {
+            while (true) {
+                checking.clear();
+                for (int i = 0; i < threads * BATCHES_PER_THREAD; i++) {
+                    checking.add(workers.submit(new BatchCheck(nextBatch++)));
+                }
+
+                for (Future<Batch> future : checking) {
+                    batch = getBatch(future);
+
+                    for (int i = 0; i < BATCH_SIZE; i++) {
+                        x = batch.xs[i];
+                        z = batch.zs[i];
+                        y = batch.ys[i];
+                        attempts++;
+                        sinceFound++;
+
+                        if (!placedZones.isAllowed(x, z)) {
+                            deadZoneRejections++;
+                        } else if (y == NOT_GENERATED) {
+                            notGenerated++;
+                        } else if (y == BLOCK_REJECTED) {
+                            blockRejections++;
+                        } else {
+                            xs[found] = (int) Math.floor(x);
+                            ys[found] = y;
+                            zs[found] = (int) Math.floor(z);
+                            found++;
+                            sinceFound = 0;
+
+                            if (minRadius > 0) {
+                                placedZones.add(new CircularZone(Math.floor(x) + .5D, Math.floor(z) + .5D, minRadius));
+                            }
+
+                            if (found == count) {
+                                return new LocationPool(worldName, style, centreX, centreZ, radius, materials.isPresent() ? materials.get().fingerprint() : 0, xs, ys, zs);
+                            }
+                        }
+
+                        if (sinceFound >= maxAttempts) {
+                            throw new LocationSearchException("Found " + found + " of " + count + " locations before running out of attempts, " + notGenerated + " candidates were in chunks that aren't generated");
+                        }
+                    }
+                }
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    protected Batch getBatch(Future<Batch> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+
+            throw new IOException(e.getCause());
+        }
+    }
+
+    // same rules as the search, against the chunk read from disk
+    @SuppressWarnings("deprecation")
+    protected int check(double x, double z) throws IOException {
+        int blockX = (int) Math.floor(x);
+        int blockZ = (int) Math.floor(z);
+
+        Optional<ChunkColumns> chunk = world.getColumns(blockX >> 4, blockZ >> 4);
+
+        if (!chunk.isPresent()) return NOT_GENERATED;
+
+        int index = ChunkColumns.index(blockX, blockZ);
+        int y = chunk.get().getY(index);
+
+        if (y < 0) return BLOCK_REJECTED;
+
+        if (materials.isPresent()) {
+            Material top = Material.getMaterial(chunk.get().getTop(index));
+            Material above = Material.getMaterial(chunk.get().getAbove(index));
+            Material below = y > 0 ? Material.getMaterial(chunk.get().getBelow(index)) : Material.AIR;
+
+            // ids this version doesn't know about (from a mod or a newer version) are rejected by the table
+            if (!materials.get().isSafe(top, above, below)) return BLOCK_REJECTED;
+        }
+
+        return y;
+    }
+
+    public long getAttempts() {
+        return attempts;
+    }
+
+    public long getNotGenerated() {
+        return notGenerated;
+    }
+
+    public long getBlockRejections() {
+        return blockRejections;
+    }
+
+    public long getDeadZoneRejections() {
+        return deadZoneRejections;
+    }
+
+    protected static class Batch {
+        protected final double[] xs = new double[BATCH_SIZE];
+        protected final double[] zs = new double[BATCH_SIZE];
+        protected final int[] ys = new int[BATCH_SIZE];
+    }
+
+    // generates and checks one batch on a worker thread, the dead zones are left to the main thread
+    protected class BatchCheck implements Callable<Batch> {
+
+        protected final long index;
+
+        protected BatchCheck(long index) {
+            this.index = index;
+        }
+
+        @Override
+        public Batch call() throws IOException {
+            Batch batch = new Batch();
+            generator.generate(index * BATCH_SIZE, SplitMixRandom.forStream(seed, index), batch.xs, batch.zs);
+
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                batch.ys[i] = check(batch.xs[i], batch.zs[i]);
+            }
+
+            return batch;
+        }
+    }
+
+    public static void main(String[] args) {
+        OptionParser parser = new OptionParser();
+
+        ArgumentAcceptingOptionSpec<File> worldSpec = parser
+                .acceptsAll(ImmutableSet.of("w", "world"), "Folder of the world to plan for, must be generated out past the radius")
+                .withRequiredArg()
+                .ofType(File.class)
+                .required();
+
+        ArgumentAcceptingOptionSpec<Double> centreSpec = parser
+                .acceptsAll(ImmutableSet.of("c", "centre"), "Coords of the centre of the scatter. If not provided uses the spawn location in level.dat")
+                .withRequiredArg()
+                .withValuesSeparatedBy(':')
+                .withValuesConvertedBy(new DoubleConverter().setType("x:z"));
+
+        ArgumentAcceptingOptionSpec<Double> radiusSpec = parser
+                .acceptsAll(ImmutableSet.of("r", "radius"), "Radius around the centre coordinate to scatter")
+                .withRequiredArg()
+                .required()
+                .withValuesConvertedBy(new DoubleConverter().setPredicate(DoublePredicates.GREATER_THAN_ZERO_INC).setType("Number >= 0"));
+
+        ArgumentAcceptingOptionSpec<ScatterStyle> logicSpec = parser
+                .acceptsAll(ImmutableSet.of("s", "style"), "Style of scatter to use. If not provided uses the config file")
+                .withRequiredArg()
+                .withValuesConvertedBy(new ScatterStyleConverter());
+
+        ArgumentAcceptingOptionSpec<Integer> countSpec = parser
+                .acceptsAll(ImmutableSet.of("n", "count"), "How many locations to put in the pool")
+                .withRequiredArg()
+                .withValuesConvertedBy(new IntegerConverter().setPredicate(IntegerPredicates.GREATER_THAN_ZERO).setType("Integer > 0"))
+                .defaultsTo(DEFAULT_POOL_SIZE);
+
+        ArgumentAcceptingOptionSpec<Integer> maxAttemptsSpec = parser
+                .acceptsAll(ImmutableSet.of("max", "maxAttempts"), "Maximum attempts to find each location. If not provided uses the config file")
+                .withRequiredArg()
+                .withValuesConvertedBy(new IntegerConverter().setPredicate(IntegerPredicates.GREATER_THAN_ZERO).setType("Integer > 0"));
+
+        ArgumentAcceptingOptionSpec<Double> minRadiusSpec = parser
+                .acceptsAll(ImmutableSet.of("m", "min", "minradius"), "Minimum radius between locations in the pool")
+                .withRequiredArg()
+                .withValuesConvertedBy(new DoubleConverter().setPredicate(DoublePredicates.GREATER_THAN_ZERO_INC).setType("Number >= 0"))
+                .defaultsTo(0D);
+
+        OptionSpec<Void> anyMaterialSpec = parser
+                .acceptsAll(ImmutableSet.of("a", "allowAllBlocks"), "Allows any blocks in the pool, ignores config settings");
+
+        ArgumentAcceptingOptionSpec<Integer> threadsSpec = parser
+                .acceptsAll(ImmutableSet.of("threads"), "How many threads to check blocks on")
+                .withRequiredArg()
+                .withValuesConvertedBy(new IntegerConverter().setPredicate(IntegerPredicates.GREATER_THAN_ZERO).setType("Integer > 0"))
+                .defaultsTo(Runtime.getRuntime().availableProcessors());
+
+        ArgumentAcceptingOptionSpec<Long> seedSpec = parser
+                .acceptsAll(ImmutableSet.of("seed"), "Seed for picking locations, the same seed and settings give the same pool. Random if not provided")
+                .withRequiredArg()
+                .withValuesConvertedBy(new SeedConverter());
+
+        ArgumentAcceptingOptionSpec<File> configSpec = parser
+                .acceptsAll(ImmutableSet.of("config"), "Config file to read the allowed blocks and defaults from. Uses the plugin's defaults if the file doesn't exist")
+                .withRequiredArg()
+                .ofType(File.class)
+                .defaultsTo(new File(DEFAULT_CONFIG));
+
+        ArgumentAcceptingOptionSpec<String> nameSpec = parser
+                .acceptsAll(ImmutableSet.of("name"), "Name of the world on the server. If not provided uses the folder name")
+                .withRequiredArg();
+
+        ArgumentAcceptingOptionSpec<File> outputSpec = parser
+                .acceptsAll(ImmutableSet.of("o", "output"), "Folder to write the pool to")
+                .withRequiredArg()
+                .ofType(File.class)
+                .defaultsTo(new File(DEFAULT_OUTPUT));
+
+        try {
+            OptionSet options = parser.parse(args);
+
+            YamlConfiguration config = loadConfig(configSpec.value(options));
+            RegionWorld world = new RegionWorld(worldSpec.value(options));
+
+            if (!new File(world.getFolder(), "region").isDirectory()) {
+                throw new IOException("No region folder in " + world.getFolder());
+            }
+
+            double centreX, centreZ;
+            if (options.has(centreSpec)) {
+                List<Double> coords = centreSpec.values(options);
+
+                if (coords.size() != 2) {
+                    throw new InvalidCoordinatesException(centreSpec.options());
+                }
+
+                centreX = coords.get(0);
+                centreZ = coords.get(1);
+            } else {
+                int[] spawn = world.readSpawn();
+                centreX = spawn[0];
+                centreZ = spawn[1];
+            }
+
+            ScatterStyle style = options.has(logicSpec) ? logicSpec.value(options) : getScatterStyle(config);
+            int maxAttempts = options.has(maxAttemptsSpec) ? maxAttemptsSpec.value(options) : config.getInt("default max attempts per player");
+            String worldName = options.has(nameSpec) ? nameSpec.value(options) : world.getFolder().getCanonicalFile().getName();
+            double radius = radiusSpec.value(options);
+            int count = countSpec.value(options);
+            long seed = options.has(seedSpec) ? seedSpec.value(options) : new Random().nextLong();
+
+            Optional<MaterialTable> materials = options.has(anyMaterialSpec)
+                    ? Optional.<MaterialTable>absent()
+                    : Optional.of(new MaterialTable(
+                            getMaterials(config, "allowed blocks"),
+                            getMaterials(config, "blocks requiring air above"),
+                            getMaterials(config, "blocks not allowed over liquid")
+                    ));
+
+            OfflinePlanner planner = new OfflinePlanner(
+                    world,
+                    worldName,
+                    style,
+                    centreX,
+                    centreZ,
+                    radius,
+                    style.candidates(centreX, centreZ, radius, count, seed),
+                    materials,
+                    minRadiusSpec.value(options),
+                    maxAttempts,
+                    seed
+            );
+
+            System.out.println(String.format("Planning %d locations in %s around %.1f:%.1f radius %.1f with seed %d", count, worldName, centreX, centreZ, radius, seed));
+
+            long start = System.nanoTime();
+            LocationPool pool = planner.plan(count, threadsSpec.value(options));
+            long millis = (System.nanoTime() - start) / 1000000L;
+
+            File file = new File(outputSpec.value(options), LocationPool.getFileName(worldName, style, centreX, centreZ, radius));
+            pool.write(file);
+
+            System.out.println(String.format(
+                    "Saved %d locations to %s in %dms. %d candidates, %d rejected by blocks, %d by dead zones, %d in chunks that aren't generated, %d chunks read",
+                    pool.size(),
+                    file.getPath(),
+                    millis,
+                    planner.getAttempts(),
+                    planner.getBlockRejections(),
+                    planner.getDeadZoneRejections(),
+                    planner.getNotGenerated(),
+                    world.getDecoded()
+            ));
+        } catch (OptionException e) {
+            System.err.println(e.getMessage());
+            printHelp(parser);
+            System.exit(1);
+        } catch (InvalidConfigurationException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        } catch (LocationSearchException e) {
+            System.err.println("Failed to plan locations: " + e.getMessage());
+            System.exit(1);
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.exit(1);
+        } catch (InterruptedException e) {
+            System.exit(1);
+        }
+    }
+
+    protected static void printHelp(OptionParser parser) {
+        try {
+            parser.printHelpOn(System.err);
+        } catch (IOException ignored) {}
+    }
+
+    // the given config file, or the defaults packed in the jar for anything it doesn't set
+    protected static YamlConfiguration loadConfig(File file) throws IOException, InvalidConfigurationException {
+        YamlConfiguration defaults = new YamlConfiguration();
+        Reader reader = new InputStreamReader(OfflinePlanner.class.getResourceAsStream("/config.yml"), Charsets.UTF_8);
+        try {
+            defaults.loadFromString(CharStreams.toString(reader));
+        } finally {
+            reader.close();
+        }
+
+        if (!file.isFile()) {
+            System.out.println("No config file at " + file.getPath() + ", using the default allowed blocks");
+            return defaults;
+        }
+
+        YamlConfiguration config = new YamlConfiguration();
+        config.load(file);
+        config.setDefaults(defaults);
+        return config;
+    }
+
+    protected static Set<Material> getMaterials(ConfigurationSection section, String path) throws InvalidConfigurationException {
+        List<String> matStrings = section.getStringList(path);
+
+        Set<Material> materials = Sets.newHashSetWithExpectedSize(matStrings.size());
+        for (String mat : matStrings) {
+            try {
+                materials.add(Material.valueOf(mat));
+            } catch (IllegalArgumentException e) {
+                throw new InvalidConfigurationException("Invalid material name: " + mat);
+            }
+        }
+
+        return materials;
+    }
+
+    protected static ScatterStyle getScatterStyle(ConfigurationSection section) throws InvalidConfigurationException {
+        String name = section.getString("default scatter style");
+        try {
+            return ScatterStyle.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidConfigurationException("Invalid scatter style: " + name);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package gg.uhc.scatterer.offline;
+
+import com.google.common.base.Optional;
+import com.google.common.io.ByteStreams;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+// An Anvil region file (32x32 chunks) mapped into memory read only, the OS pages in only the
+// sectors that are actually read. The header is 1024 entries of a 3 byte sector offset and a
+// 1 byte sector count, each chunk is a 4 byte length, a compression type and the compressed NBT.
+// Never moves the mapped buffer's position so any number of threads can read at once
+public class RegionFile {
+
+    protected static final int SECTOR_BYTES = 4096;
+    // location table and timestamp table
+    protected static final int HEADER_BYTES = SECTOR_BYTES * 2;
+    protected static final byte GZIP = 1;
+    protected static final byte ZLIB = 2;
+
+    protected final File file;
+    protected final ByteBuffer buffer;
+
+    public RegionFile(File file) throws IOException {
+        this.file = file;
+
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            // the mapping stays valid after the channel is closed
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+        } finally {
+            raf.close();
+        }
+    }
+
+    public static String getFileName(int regionX, int regionZ) {
+        return "r." + regionX + "." + regionZ + ".mca";
+    }
+
+    // decompressed NBT of the chunk, absent if the chunk was never generated
+    public Optional<byte[]> read(int chunkX, int chunkZ) throws IOException {
+        // a file the server created but never wrote a chunk to
+        if (buffer.limit() < HEADER_BYTES) return Optional.absent();
+
+        int entry = buffer.getInt(((chunkX & 31) + (chunkZ & 31) * 32) * 4);
+        int offset = (entry >>> 8) * SECTOR_BYTES;
+
+        if (offset == 0) return Optional.absent();
+
+        if (offset + 5 > buffer.limit()) {
+            throw new IOException("Chunk " + chunkX + "," + chunkZ + " starts past the end of " + file);
+        }
+
+        int length = buffer.getInt(offset);
+        byte compression = buffer.get(offset + 4);
+
+        if (length <= 1 || offset + 4 + length > buffer.limit()) {
+            throw new IOException("Chunk " + chunkX + "," + chunkZ + " has a bad length in " + file);
+        }
+
+        byte[] compressed = new byte[length - 1];
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset + 5);
+        view.get(compressed);
+
+        InputStream in;
+        switch (compression) {
+            case ZLIB:
+                in = new InflaterInputStream(new ByteArrayInputStream(compressed));
+                break;
+            case GZIP:
+                in = new GZIPInputStream(new ByteArrayInputStream(compressed));
+                break;
+            default:
+                throw new IOException("Chunk " + chunkX + "," + chunkZ + " has unknown compression " + compression + " in " + file);
+        }
+
+        try {
+            return Optional.of(ByteStreams.toByteArray(in));
+        } finally {
+            in.close();
+        }
+    }
+}
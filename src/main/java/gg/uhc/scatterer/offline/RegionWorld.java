@@ -0,0 +1,246 @@
+package gg.uhc.scatterer.offline;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
+import gg.uhc.scatterer.search.ChunkColumns;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+// A 1.8 world folder read straight from its region files without a server. Each chunk is decoded
+// once into the same ChunkColumns the column cache uses, only the height map and the block ids
+// around the top of each column are kept. Safe to use from any number of threads
+public class RegionWorld {
+
+    protected static final int SECTIONS = 16;
+    protected static final int MAX_HEIGHT = SECTIONS * 16;
+
+    protected final File folder;
+    protected final File regionFolder;
+
+    // region files stay mapped until the planner exits
+    protected final Map<Long, Optional<RegionFile>> regions = Maps.newHashMap();
+    protected final ConcurrentMap<Long, Optional<ChunkColumns>> chunks = new ConcurrentHashMap<Long, Optional<ChunkColumns>>();
+
+    protected final AtomicLong decoded = new AtomicLong();
+
+    public RegionWorld(File folder) {
+        this.folder = folder;
+        this.regionFolder = new File(folder, "region");
+    }
+
+    protected static long key(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    public File getFolder() {
+        return folder;
+    }
+
+    public long getDecoded() {
+        return decoded.get();
+    }
+
+    // x and z of the world spawn from level.dat
+    public int[] readSpawn() throws IOException {
+        InputStream in = new GZIPInputStream(new FileInputStream(new File(folder, "level.dat")));
+
+        byte[] data;
+        try {
+            data = ByteStreams.toByteArray(in);
+        } finally {
+            in.close();
+        }
+
+        NbtReader nbt = new NbtReader(data);
+        nbt.readRoot();
+
+        if (!nbt.enter("Data")) throw new IOException("level.dat has no Data tag");
+
+        Integer spawnX = null, spawnZ = null;
+        byte type;
+        String name;
+        while ((type = nbt.nextTag()) != NbtReader.END) {
+            name = nbt.readString();
+
+            if (type == NbtReader.INT && name.equals("SpawnX")) {
+                spawnX = nbt.readInt();
+            } else if (type == NbtReader.INT && name.equals("SpawnZ")) {
+                spawnZ = nbt.readInt();
+            } else {
+                nbt.skip(type);
+            }
+        }
+
+        if (spawnX == null || spawnZ == null) throw new IOException("level.dat has no spawn location");
+
+        return new int[]{spawnX, spawnZ};
+    }
+
+    // absent for chunks that aren't generated and populated yet, a server would still change them
+    public Optional<ChunkColumns> getColumns(int chunkX, int chunkZ) throws IOException {
+        long key = key(chunkX, chunkZ);
+        Optional<ChunkColumns> columns = chunks.get(key);
+
+        if (columns != null) return columns;
+
+        Optional<RegionFile> region = getRegion(chunkX >> 5, chunkZ >> 5);
+        Optional<byte[]> data = region.isPresent() ? region.get().read(chunkX, chunkZ) : Optional.<byte[]>absent();
+
+        try {
+            columns = data.isPresent() ? decode(data.get()) : Optional.<ChunkColumns>absent();
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Chunk " + chunkX + "," + chunkZ + " ends part way through its data", e);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Chunk " + chunkX + "," + chunkZ + " ends part way through its data", e);
+        }
+
+        decoded.incrementAndGet();
+
+        // two threads decoding the same chunk both come up with the same thing, keep the first
+        Optional<ChunkColumns> existing = chunks.putIfAbsent(key, columns);
+        return existing == null ? columns : existing;
+    }
+
+    protected synchronized Optional<RegionFile> getRegion(int regionX, int regionZ) throws IOException {
+        long key = key(regionX, regionZ);
+        Optional<RegionFile> region = regions.get(key);
+
+        if (region != null) return region;
+
+        File file = new File(regionFolder, RegionFile.getFileName(regionX, regionZ));
+        region = file.isFile() ? Optional.of(new RegionFile(file)) : Optional.<RegionFile>absent();
+        regions.put(key, region);
+        return region;
+    }
+
+    protected Optional<ChunkColumns> decode(byte[] data) throws IOException {
+        NbtReader nbt = new NbtReader(data);
+        nbt.readRoot();
+
+        if (!nbt.enter("Level")) throw new IOException("Chunk has no Level tag");
+
+        int[] heights = null;
+        boolean populated = false;
+        byte[][] blocks = new byte[SECTIONS][];
+        byte[][] adds = new byte[SECTIONS][];
+
+        byte type;
+        String name;
+        while ((type = nbt.nextTag()) != NbtReader.END) {
+            name = nbt.readString();
+
+            if (type == NbtReader.INT_ARRAY && name.equals("HeightMap")) {
+                heights = nbt.readIntArray();
+            } else if (type == NbtReader.BYTE && name.equals("TerrainPopulated")) {
+                populated = nbt.readByte() != 0;
+            } else if (type == NbtReader.LIST && name.equals("Sections")) {
+                readSections(nbt, blocks, adds);
+            } else {
+                nbt.skip(type);
+            }
+        }
+
+        // trees, lakes etc. aren't there until the chunk is populated
+        if (!populated) return Optional.absent();
+
+        ChunkColumns columns = new ChunkColumns();
+        int index, y;
+        for (int z = 0; z < 16; z++) {
+            for (int x = 0; x < 16; x++) {
+                index = ChunkColumns.index(x, z);
+
+                // the height map is what getHighestBlockYAt reads, the first air block above the ground
+                y = heights != null && heights.length == ChunkColumns.COLUMNS ? heights[index] - 1 : highestBlock(blocks, adds, x, z);
+
+                if (y < 0) {
+                    columns.set(index, y, 0, 0, 0);
+                    continue;
+                }
+
+                columns.set(
+                        index,
+                        y,
+                        blockId(blocks, adds, x, y, z),
+                        y + 1 < MAX_HEIGHT ? blockId(blocks, adds, x, y + 1, z) : 0,
+                        y > 0 ? blockId(blocks, adds, x, y - 1, z) : 0
+                );
+            }
+        }
+
+        return Optional.of(columns);
+    }
+
+    protected void readSections(NbtReader nbt, byte[][] blocks, byte[][] adds) throws IOException {
+        byte elementType = nbt.readByte();
+        int size = nbt.readInt();
+
+        byte type;
+        String name;
+        int sectionY;
+        byte[] sectionBlocks, sectionAdd;
+        for (int i = 0; i < size; i++) {
+            if (elementType != NbtReader.COMPOUND) {
+                nbt.skip(elementType);
+                continue;
+            }
+
+            sectionY = -1;
+            sectionBlocks = null;
+            sectionAdd = null;
+            while ((type = nbt.nextTag()) != NbtReader.END) {
+                name = nbt.readString();
+
+                if (type == NbtReader.BYTE && name.equals("Y")) {
+                    sectionY = nbt.readByte();
+                } else if (type == NbtReader.BYTE_ARRAY && name.equals("Blocks")) {
+                    sectionBlocks = nbt.readByteArray();
+                } else if (type == NbtReader.BYTE_ARRAY && name.equals("Add")) {
+                    sectionAdd = nbt.readByteArray();
+                } else {
+                    nbt.skip(type);
+                }
+            }
+
+            if (sectionY < 0 || sectionY >= SECTIONS || sectionBlocks == null || sectionBlocks.length != 4096) continue;
+
+            blocks[sectionY] = sectionBlocks;
+            adds[sectionY] = sectionAdd != null && sectionAdd.length == 2048 ? sectionAdd : null;
+        }
+    }
+
+    // ids above 255 keep their top 4 bits in the section's Add nibbles
+    protected int blockId(byte[][] blocks, byte[][] adds, int x, int y, int z) {
+        byte[] section = blocks[y >> 4];
+
+        // sections with nothing but air aren't saved
+        if (section == null) return 0;
+
+        int index = (y & 15) << 8 | z << 4 | x;
+        int id = section[index] & 0xFF;
+
+        byte[] add = adds[y >> 4];
+        if (add != null) {
+            id |= ((index & 1) == 0 ? add[index >> 1] & 0x0F : (add[index >> 1] >> 4) & 0x0F) << 8;
+        }
+
+        return id;
+    }
+
+    // only for chunks saved without a height map, the highest block that isn't air
+    protected int highestBlock(byte[][] blocks, byte[][] adds, int x, int z) {
+        for (int y = MAX_HEIGHT - 1; y >= 0; y--) {
+            if (blockId(blocks, adds, x, y, z) != 0) return y;
+        }
+        return -1;
+    }
+}
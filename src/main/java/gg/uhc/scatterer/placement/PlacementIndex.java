@@ -0,0 +1,147 @@
+package gg.uhc.scatterer.placement;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import gg.uhc.scatterer.search.AreaMask;
+import gg.uhc.scatterer.search.CandidateGenerator;
+import gg.uhc.scatterer.search.CircularZone;
+import gg.uhc.scatterer.search.DeadZoneStore;
+import gg.uhc.scatterer.search.MaterialTable;
+import gg.uhc.scatterer.search.SplitMixRandom;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.Map;
+
+// Where everything in the last scatter of a world landed, kept after the scatter so a late
+// joiner can be placed against it without adding a dead zone for everyone online and searching
+// from scratch. Filled in as each set is teleported and whenever someone is placed late, the
+// spare locations the scatter didn't use are tried before searching. Server thread only
+public class PlacementIndex {
+
+    protected static final int BATCH_SIZE = 16;
+
+    protected final World world;
+    protected final CandidateGenerator generator;
+    protected final DeadZoneStore placed;
+    protected final Optional<AreaMask> mask;
+    protected final Optional<MaterialTable> materials;
+    protected final double minRadius;
+    protected final int maxAttempts;
+    protected final long seed;
+
+    // by scatterable id, where they were teleported to
+    protected final Map<String, Location> positions = Maps.newHashMap();
+    protected final LinkedList<Location> reserved = Lists.newLinkedList();
+
+    protected long nextBatch = 0;
+
+    // placed should already hold the zones that don't move, e.g. around spawn
+    public PlacementIndex(World world, CandidateGenerator generator, DeadZoneStore placed, Optional<AreaMask> mask, Optional<MaterialTable> materials, double minRadius, int maxAttempts, long seed) {
+        this.world = world;
+        this.generator = generator;
+        this.placed = placed;
+        this.mask = mask;
+        this.materials = materials;
+        this.minRadius = minRadius;
+        this.maxAttempts = maxAttempts;
+        this.seed = seed;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    public int size() {
+        return positions.size();
+    }
+
+    public int getReserved() {
+        return reserved.size();
+    }
+
+    public Optional<Location> getPosition(String id) {
+        Location location = positions.get(id);
+        return location == null ? Optional.<Location>absent() : Optional.of(location.clone());
+    }
+
+    // someone moved again keeps their old zone too, zones can't be taken back out of the store
+    public void record(String id, Location location) {
+        positions.put(id, location.clone());
+
+        if (minRadius > 0) {
+            placed.add(new CircularZone(location.getX(), location.getZ(), minRadius));
+        }
+    }
+
+    public void reserve(Collection<Location> locations) {
+        reserved.addAll(locations);
+    }
+
+    // a location the same distance from everyone placed so far as the scatter used, absent if
+    // nothing was found within the scatter's max attempts. Y is the top block like the search
+    public Optional<Location> place() {
+        Location location;
+        while (!reserved.isEmpty()) {
+            location = reserved.pop();
+
+            // the spare's blocks are checked again, it could have been a while since the scatter
+            if (!placed.isAllowed(location.getX(), location.getZ())) continue;
+
+            location = validate(location.getX(), location.getZ());
+
+            if (location != null) return Optional.of(location);
+        }
+
+        double[] xs = new double[BATCH_SIZE];
+        double[] zs = new double[BATCH_SIZE];
+        int attempts = 0;
+        while (attempts < maxAttempts) {
+            // batches carry on from the last late placement so the same spots aren't tried again
+            generator.generate(nextBatch * BATCH_SIZE, SplitMixRandom.forStream(seed, nextBatch), xs, zs);
+            nextBatch++;
+
+            for (int i = 0; i < BATCH_SIZE && attempts < maxAttempts; i++) {
+                // outside the regions never counted as an attempt in the scatter either
+                if (mask.isPresent() && !mask.get().isInRegions(xs[i], zs[i])) continue;
+
+                attempts++;
+
+                if (!placed.isAllowed(xs[i], zs[i])) continue;
+                if (mask.isPresent() && !mask.get().isAllowedBiome(world, xs[i], zs[i])) continue;
+
+                location = validate(xs[i], zs[i]);
+
+                if (location != null) return Optional.of(location);
+            }
+        }
+
+        return Optional.absent();
+    }
+
+    // same checks as the search, loads the chunk if it isn't loaded
+    @SuppressWarnings("deprecation")
+    protected Location validate(double x, double z) {
+        int blockX = (int) Math.floor(x);
+        int blockZ = (int) Math.floor(z);
+
+        // highest block Y is the first air block above the ground
+        int y = world.getHighestBlockYAt(blockX, blockZ) - 1;
+
+        if (y < 0) return null;
+
+        if (materials.isPresent()) {
+            Material top = Material.getMaterial(world.getBlockTypeIdAt(blockX, y, blockZ));
+            Material above = Material.getMaterial(world.getBlockTypeIdAt(blockX, y + 1, blockZ));
+            Material below = y > 0 ? Material.getMaterial(world.getBlockTypeIdAt(blockX, y - 1, blockZ)) : Material.AIR;
+
+            if (!materials.get().isSafe(top, above, below)) return null;
+        }
+
+        return new Location(world, blockX + .5D, y, blockZ + .5D);
+    }
+}
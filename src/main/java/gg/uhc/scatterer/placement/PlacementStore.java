@@ -0,0 +1,42 @@
+package gg.uhc.scatterer.placement;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import gg.uhc.scatterer.Scatterable;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.List;
+import java.util.Map;
+
+// The placement index of the last scatter in each world, a new scatter replaces the old one.
+// Only kept until a restart
+public class PlacementStore {
+
+    protected final Map<String, PlacementIndex> indexes = Maps.newHashMap();
+
+    public void start(PlacementIndex index) {
+        indexes.put(index.getWorld().getName(), index);
+    }
+
+    public Optional<PlacementIndex> get(World world) {
+        return Optional.fromNullable(indexes.get(world.getName()));
+    }
+
+    public List<String> getWorlds() {
+        return ImmutableList.copyOf(indexes.keySet());
+    }
+
+    // called as each set lands, sets in worlds without an index are ignored
+    public void record(List<Scatterable> scatterables, List<Location> locations) {
+        PlacementIndex index;
+        for (int i = 0; i < scatterables.size(); i++) {
+            index = indexes.get(locations.get(i).getWorld().getName());
+
+            if (index != null) {
+                index.record(scatterables.get(i).getId(), locations.get(i));
+            }
+        }
+    }
+}
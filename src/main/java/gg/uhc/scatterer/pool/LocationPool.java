@@ -0,0 +1,220 @@
+package gg.uhc.scatterer.pool;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import gg.uhc.scatterer.ScatterStyle;
+import gg.uhc.scatterer.metrics.ScatterMetrics;
+import gg.uhc.scatterer.search.CircularZone;
+import gg.uhc.scatterer.search.DeadZoneStore;
+import gg.uhc.scatterer.search.LocationSearchException;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.io.*;
+import java.util.List;
+import java.util.Random;
+
+// Pool of already validated locations for a world/style/centre/radius, stored as a small binary
+// file: header followed by x (int), z (int) and y (unsigned byte) for each location
+public class LocationPool {
+
+    public static final String FOLDER = "pools";
+
+    protected static final int MAGIC = 0x53435450; // SCTP
+    protected static final int VERSION = 2;
+
+    protected final String worldName;
+    // drawing at random from a pool only keeps the shape of the style that made it
+    protected final ScatterStyle style;
+    protected final double centreX;
+    protected final double centreZ;
+    protected final double radius;
+    protected final int materialsFingerprint;
+
+    protected final int[] xs;
+    protected final int[] ys;
+    protected final int[] zs;
+
+    public LocationPool(String worldName, ScatterStyle style, double centreX, double centreZ, double radius, int materialsFingerprint, int[] xs, int[] ys, int[] zs) {
+        Preconditions.checkArgument(xs.length == ys.length && ys.length == zs.length);
+        this.worldName = worldName;
+        this.style = style;
+        this.centreX = centreX;
+        this.centreZ = centreZ;
+        this.radius = radius;
+        this.materialsFingerprint = materialsFingerprint;
+        this.xs = xs;
+        this.ys = ys;
+        this.zs = zs;
+    }
+
+    public static LocationPool fromLocations(World world, ScatterStyle style, double centreX, double centreZ, double radius, int materialsFingerprint, List<Location> locations) {
+        int[] xs = new int[locations.size()];
+        int[] ys = new int[locations.size()];
+        int[] zs = new int[locations.size()];
+
+        Location location;
+        for (int i = 0; i < xs.length; i++) {
+            location = locations.get(i);
+            xs[i] = location.getBlockX();
+            ys[i] = location.getBlockY();
+            zs[i] = location.getBlockZ();
+        }
+
+        return new LocationPool(world.getName(), style, centreX, centreZ, radius, materialsFingerprint, xs, ys, zs);
+    }
+
+    // file name pools for the same world, style, centre and radius end up in
+    public static String getFileName(String worldName, ScatterStyle style, double centreX, double centreZ, double radius) {
+        return String.format("%s_%s_%d_%d_%d.pool", worldName, style.name().toLowerCase(), (int) Math.floor(centreX), (int) Math.floor(centreZ), (int) Math.floor(radius));
+    }
+
+    public String getWorldName() {
+        return worldName;
+    }
+
+    public ScatterStyle getStyle() {
+        return style;
+    }
+
+    public int getMaterialsFingerprint() {
+        return materialsFingerprint;
+    }
+
+    public int size() {
+        return xs.length;
+    }
+
+    // picks locations from the pool in a random order, skipping any inside a dead zone. Each picked
+    // location adds a dead zone of minRadius around itself. Up to spares more are picked after count,
+    // a pool that can't fit them all still succeeds with fewer
+    public List<Location> draw(World world, int count, int spares, DeadZoneStore deadZones, List<CircularZone> initialZones, double minRadius, Random random, int reattempts, ScatterMetrics metrics) throws LocationSearchException {
+        long start = System.nanoTime();
+        metrics.startSearch();
+
+        int[] order = new int[xs.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+
+        List<Location> found = Lists.newArrayListWithCapacity(count + spares);
+        double x, z;
+        int index, swap;
+        long attempts = 0;
+        long rejected = 0;
+        int attempt;
+        for (attempt = 0; attempt < reattempts; attempt++) {
+            found.clear();
+            deadZones.clear();
+            deadZones.addAll(initialZones);
+
+            // partial shuffle as we go, we usually need far fewer than the full pool
+            for (int i = 0; i < order.length && found.size() < count + spares; i++) {
+                swap = i + random.nextInt(order.length - i);
+                index = order[swap];
+                order[swap] = order[i];
+                order[i] = index;
+
+                x = xs[index] + .5D;
+                z = zs[index] + .5D;
+
+                attempts++;
+
+                if (!deadZones.isAllowed(x, z)) {
+                    rejected++;
+                    continue;
+                }
+
+                found.add(new Location(world, x, ys[index], z));
+
+                if (minRadius > 0) {
+                    deadZones.add(new CircularZone(x, z, minRadius));
+                }
+            }
+
+            if (found.size() >= count) break;
+        }
+
+        // every pool location was checked when it was made, only the dead zones can reject them
+        long taken = System.nanoTime() - start;
+        metrics.endSearch(Math.min(attempt + 1, reattempts));
+        metrics.recordSearch(attempts, found.size(), rejected, 0, taken, taken);
+
+        if (found.size() >= count) {
+            return ImmutableList.copyOf(found);
+        }
+
+        throw new LocationSearchException("Pool of " + xs.length + " locations couldn't fit " + count + " players/teams");
+    }
+
+    public void write(File file) throws IOException {
+        File parent = file.getParentFile();
+
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Unable to create folder " + parent);
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(worldName);
+            out.writeUTF(style.name());
+            out.writeDouble(centreX);
+            out.writeDouble(centreZ);
+            out.writeDouble(radius);
+            out.writeInt(materialsFingerprint);
+            out.writeInt(xs.length);
+
+            for (int i = 0; i < xs.length; i++) {
+                out.writeInt(xs[i]);
+                out.writeInt(zs[i]);
+                out.writeByte(ys[i]);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    public static LocationPool read(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+        try {
+            if (in.readInt() != MAGIC) throw new IOException("Not a location pool file: " + file);
+
+            int version = in.readInt();
+            if (version != VERSION) throw new IOException("Unsupported location pool version " + version + ": " + file);
+
+            String worldName = in.readUTF();
+            String styleName = in.readUTF();
+            double centreX = in.readDouble();
+            double centreZ = in.readDouble();
+            double radius = in.readDouble();
+            int fingerprint = in.readInt();
+            int count = in.readInt();
+
+            int[] xs = new int[count];
+            int[] ys = new int[count];
+            int[] zs = new int[count];
+
+            for (int i = 0; i < count; i++) {
+                xs[i] = in.readInt();
+                zs[i] = in.readInt();
+                ys[i] = in.readUnsignedByte();
+            }
+
+            ScatterStyle style;
+            try {
+                style = ScatterStyle.valueOf(styleName);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Unknown scatter style " + styleName + ": " + file);
+            }
+
+            return new LocationPool(worldName, style, centreX, centreZ, radius, fingerprint, xs, ys, zs);
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package gg.uhc.scatterer.scheduling;
+
+import com.google.common.base.Preconditions;
+
+// Grows or shrinks the teleport set size and the delay between sets so each set
+// stays within the target milliseconds and backs off when the server is behind
+public class AdaptiveSchedule {
+
+    // ticks slower than this compared to normal are treated as the server being behind
+    protected static final double LAGGING_RATIO = 1.1D;
+    protected static final int RECENT_TICKS = 20;
+
+    protected final TickMonitor monitor;
+    protected final double targetMillis;
+    protected final int maxSize;
+    protected final int maxDelay;
+
+    protected int size;
+    protected int delay;
+
+    public AdaptiveSchedule(TickMonitor monitor, double targetMillis, int initialSize, int initialDelay) {
+        Preconditions.checkArgument(targetMillis > 0);
+        Preconditions.checkArgument(initialSize > 0);
+        Preconditions.checkArgument(initialDelay > 0);
+
+        this.monitor = monitor;
+        this.targetMillis = targetMillis;
+        this.size = initialSize;
+        this.delay = initialDelay;
+        this.maxSize = initialSize * 4;
+        this.maxDelay = initialDelay * 4;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getDelay() {
+        return delay;
+    }
+
+    public void onSetComplete(int teleported, long nanos) {
+        double millis = nanos / 1000000D;
+
+        // server can't keep up, halve the sets and wait longer between them
+        if (monitor.getAverageTickMillis(RECENT_TICKS) > TickMonitor.TICK_MILLIS * LAGGING_RATIO) {
+            size = Math.max(1, size / 2);
+            delay = Math.min(maxDelay, delay * 2);
+            return;
+        }
+
+        // aim for the size that would take the target time, growing at most double each set
+        double perTeleport = millis / teleported;
+        int ideal = perTeleport <= 0 ? maxSize : (int) (targetMillis / perTeleport);
+        size = Math.max(1, Math.min(maxSize, Math.min(ideal, size * 2)));
+
+        if (millis > targetMillis) {
+            delay = Math.min(maxDelay, delay + 1);
+        } else if (millis < targetMillis / 2) {
+            delay = Math.max(1, delay - 1);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package gg.uhc.scatterer.scheduling;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+
+import java.util.concurrent.Executor;
+
+public class MainThreadExecutor implements Executor {
+
+    protected final Plugin plugin;
+
+    public MainThreadExecutor(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        // run straight away if we're already on the server thread
+        if (Bukkit.isPrimaryThread()) {
+            command.run();
+            return;
+        }
+
+        Bukkit.getScheduler().runTask(plugin, command);
+    }
+}
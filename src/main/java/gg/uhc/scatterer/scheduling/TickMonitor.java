@@ -0,0 +1,50 @@
+package gg.uhc.scatterer.scheduling;
+
+import org.bukkit.scheduler.BukkitRunnable;
+
+// Records the time between server ticks, 50ms when the server keeps up, more when it's behind
+public class TickMonitor extends BukkitRunnable {
+
+    public static final double TICK_MILLIS = 50D;
+
+    protected final long[] intervals;
+
+    protected long last = 0;
+    protected int index = 0;
+    protected int recorded = 0;
+
+    public TickMonitor(int sampleSize) {
+        this.intervals = new long[sampleSize];
+    }
+
+    @Override
+    public void run() {
+        long now = System.nanoTime();
+
+        if (last != 0) {
+            intervals[index] = now - last;
+            index = (index + 1) % intervals.length;
+            recorded = Math.min(recorded + 1, intervals.length);
+        }
+
+        last = now;
+    }
+
+    public double getAverageTickMillis() {
+        return getAverageTickMillis(recorded);
+    }
+
+    // average of the most recent samples
+    public double getAverageTickMillis(int samples) {
+        samples = Math.min(samples, recorded);
+
+        if (samples == 0) return TICK_MILLIS;
+
+        long sum = 0;
+        for (int i = 1; i <= samples; i++) {
+            sum += intervals[(index - i + intervals.length) % intervals.length];
+        }
+
+        return sum / (double) samples / 1000000D;
+    }
+}
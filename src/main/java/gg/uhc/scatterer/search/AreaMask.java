@@ -0,0 +1,202 @@
+package gg.uhc.scatterer.search;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+import org.bukkit.World;
+import org.bukkit.block.Biome;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+// Which chunks of a scatter area locations can go in, one byte per chunk. The regions are
+// worked out for every chunk up front so workers can throw candidates away without any
+// maths for most of them. Biomes need the world so each chunk's biomes are sampled on the
+// server thread the first time a candidate lands in it, after that workers skip it too.
+//
+// A location has to be inside at least one of the anyOf regions (if there are any) and
+// inside every one of the allOf regions
+public class AreaMask {
+
+    // low 2 bits are the region state, the next 2 the biome state
+    protected static final int REGION_MASK = 3;
+    protected static final int BIOME_SHIFT = 2;
+
+    protected static final int BIOME_UNKNOWN = 0;
+    protected static final int BIOME_EXCLUDED = 1;
+    // not every sample was excluded, each location is checked on its own
+    protected static final int BIOME_CHECK = 2;
+
+    protected final List<Region> anyOf;
+    protected final List<Region> allOf;
+    protected final Set<Biome> excludedBiomes;
+
+    protected final int minChunkX;
+    protected final int minChunkZ;
+    protected final int width;
+    protected final int length;
+
+    // only written on the server thread, workers reading an old value just skip fewer candidates
+    protected final byte[] states;
+
+    public AreaMask(double centreX, double centreZ, double radius, Collection<? extends Region> anyOf, Collection<? extends Region> allOf, Collection<Biome> excludedBiomes) {
+        this.anyOf = ImmutableList.copyOf(anyOf);
+        this.allOf = ImmutableList.copyOf(allOf);
+        this.excludedBiomes = Sets.newEnumSet(excludedBiomes, Biome.class);
+
+        minChunkX = (int) Math.floor(centreX - radius) >> 4;
+        minChunkZ = (int) Math.floor(centreZ - radius) >> 4;
+        width = ((int) Math.floor(centreX + radius) >> 4) - minChunkX + 1;
+        length = ((int) Math.floor(centreZ + radius) >> 4) - minChunkZ + 1;
+
+        states = new byte[width * length];
+
+        double minX, minZ;
+        for (int x = 0; x < width; x++) {
+            for (int z = 0; z < length; z++) {
+                minX = (minChunkX + x) << 4;
+                minZ = (minChunkZ + z) << 4;
+                states[x * length + z] = (byte) classify(minX, minZ, minX + 16, minZ + 16);
+            }
+        }
+    }
+
+    public boolean hasRegions() {
+        return !anyOf.isEmpty() || !allOf.isEmpty();
+    }
+
+    public boolean hasBiomes() {
+        return !excludedBiomes.isEmpty();
+    }
+
+    // false if no chunk in the area is even partly inside the regions
+    public boolean hasAllowedArea() {
+        for (byte state : states) {
+            if ((state & REGION_MASK) != Region.OUTSIDE) return true;
+        }
+
+        return false;
+    }
+
+    protected int classify(double minX, double minZ, double maxX, double maxZ) {
+        int state = anyOf.isEmpty() ? Region.INSIDE : Region.OUTSIDE;
+
+        int region;
+        for (Region any : anyOf) {
+            region = any.classify(minX, minZ, maxX, maxZ);
+
+            if (region == Region.INSIDE) {
+                state = Region.INSIDE;
+                break;
+            }
+
+            if (region == Region.PARTIAL) state = Region.PARTIAL;
+        }
+
+        for (Region all : allOf) {
+            if (state == Region.OUTSIDE) break;
+
+            region = all.classify(minX, minZ, maxX, maxZ);
+
+            if (region == Region.OUTSIDE) {
+                state = Region.OUTSIDE;
+            } else if (region == Region.PARTIAL) {
+                state = Region.PARTIAL;
+            }
+        }
+
+        return state;
+    }
+
+    // -1 if the location is outside the area the mask was made for
+    protected int index(double x, double z) {
+        int chunkX = ((int) Math.floor(x) >> 4) - minChunkX;
+        int chunkZ = ((int) Math.floor(z) >> 4) - minChunkZ;
+
+        if (chunkX < 0 || chunkZ < 0 || chunkX >= width || chunkZ >= length) return -1;
+
+        return chunkX * length + chunkZ;
+    }
+
+    // exact region check, safe to call from any thread
+    public boolean isInRegions(double x, double z) {
+        int index = index(x, z);
+
+        if (index >= 0) {
+            int state = states[index] & REGION_MASK;
+
+            if (state != Region.PARTIAL) return state == Region.INSIDE;
+        }
+
+        boolean inside = anyOf.isEmpty();
+        for (Region any : anyOf) {
+            if (any.contains(x, z)) {
+                inside = true;
+                break;
+            }
+        }
+
+        if (!inside) return false;
+
+        for (Region all : allOf) {
+            if (!all.contains(x, z)) return false;
+        }
+
+        return true;
+    }
+
+    // true if the chunk has already been found to be in excluded biomes, safe to call from any thread
+    public boolean isKnownExcluded(double x, double z) {
+        int index = index(x, z);
+        return index >= 0 && states[index] >> BIOME_SHIFT == BIOME_EXCLUDED;
+    }
+
+    // safe to call from any thread, for biomes read from a snapshot
+    public boolean isExcludedBiome(Biome biome) {
+        return excludedBiomes.contains(biome);
+    }
+
+    // biome check for a single location, server thread only
+    public boolean isAllowedBiome(World world, double x, double z) {
+        if (excludedBiomes.isEmpty()) return true;
+
+        int blockX = (int) Math.floor(x);
+        int blockZ = (int) Math.floor(z);
+        int index = index(x, z);
+
+        if (index >= 0) {
+            int biome = states[index] >> BIOME_SHIFT;
+
+            if (biome == BIOME_UNKNOWN) {
+                biome = sampleChunk(world, blockX >> 4, blockZ >> 4);
+                states[index] = (byte) (states[index] & REGION_MASK | biome << BIOME_SHIFT);
+            }
+
+            if (biome == BIOME_EXCLUDED) return false;
+        }
+
+        return !excludedBiomes.contains(world.getBiome(blockX, blockZ));
+    }
+
+    // corners and middle of the chunk first, most chunks with anything allowed in them stop there.
+    // A chunk is only skipped if every one of its columns is excluded, a few samples can miss an
+    // allowed pocket (a river through an ocean) so the rest are read before saying so
+    protected int sampleChunk(World world, int chunkX, int chunkZ) {
+        int x = chunkX << 4;
+        int z = chunkZ << 4;
+
+        if (!excludedBiomes.contains(world.getBiome(x + 8, z + 8))) return BIOME_CHECK;
+        if (!excludedBiomes.contains(world.getBiome(x, z))) return BIOME_CHECK;
+        if (!excludedBiomes.contains(world.getBiome(x + 15, z))) return BIOME_CHECK;
+        if (!excludedBiomes.contains(world.getBiome(x, z + 15))) return BIOME_CHECK;
+        if (!excludedBiomes.contains(world.getBiome(x + 15, z + 15))) return BIOME_CHECK;
+
+        for (int dx = 0; dx < 16; dx++) {
+            for (int dz = 0; dz < 16; dz++) {
+                if (!excludedBiomes.contains(world.getBiome(x + dx, z + dz))) return BIOME_CHECK;
+            }
+        }
+
+        return BIOME_EXCLUDED;
+    }
+}
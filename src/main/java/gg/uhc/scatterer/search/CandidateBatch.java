@@ -0,0 +1,61 @@
+package gg.uhc.scatterer.search;
+
+// a batch of candidates that already passed the dead zone filter on a worker thread
+class CandidateBatch {
+
+    // results of checking candidates on a worker, anything 0 or above is the Y of the top block
+    static final int UNCHECKED = Integer.MIN_VALUE;
+    static final int BLOCK_REJECTED = -1;
+    static final int BIOME_REJECTED = -2;
+
+    protected final long index;
+    protected final double[] xs;
+    protected final double[] zs;
+    // only made when the candidates are checked on a worker
+    protected int[] ys = null;
+
+    // how many candidates were thrown away by the dead zone filter
+    protected int rejected = 0;
+    // outside the mask's regions, not counted as attempts
+    protected int masked = 0;
+    // in a chunk the mask already knows is in excluded biomes
+    protected int biomeRejected = 0;
+    protected int size = 0;
+    protected int cursor = 0;
+
+    CandidateBatch(long index, int capacity) {
+        this.index = index;
+        this.xs = new double[capacity];
+        this.zs = new double[capacity];
+    }
+
+    void add(double x, double z) {
+        xs[size] = x;
+        zs[size] = z;
+        size++;
+    }
+
+    boolean hasNext() {
+        return cursor < size;
+    }
+
+    double nextX() {
+        return xs[cursor];
+    }
+
+    double nextZ() {
+        return zs[cursor];
+    }
+
+    int nextY() {
+        return ys == null ? UNCHECKED : ys[cursor];
+    }
+
+    boolean isChecked() {
+        return ys != null;
+    }
+
+    void advance() {
+        cursor++;
+    }
+}
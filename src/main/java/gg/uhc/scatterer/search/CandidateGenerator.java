@@ -0,0 +1,9 @@
+package gg.uhc.scatterer.search;
+
+import java.util.Random;
+
+public interface CandidateGenerator {
+    // fills both arrays with candidate x/z coordinates, index is the number of the first candidate
+    // in the arrays and random is seeded for this batch alone
+    void generate(long index, Random random, double[] xs, double[] zs);
+}
@@ -0,0 +1,77 @@
+package gg.uhc.scatterer.search;
+
+import org.bukkit.World;
+
+import java.util.Arrays;
+
+// What a scatter needs to know about each of the 256 columns in a chunk, the Y of the top
+// block and the type ids around it. Columns are filled in the first time they
+// are checked, the rest of the chunk is left alone
+public class ChunkColumns {
+
+    public static final int COLUMNS = 16 * 16;
+
+    // not checked yet, -1 is a real value for columns with nothing in them
+    protected static final short UNKNOWN = Short.MIN_VALUE;
+
+    protected final short[] ys = new short[COLUMNS];
+    protected final short[] tops = new short[COLUMNS];
+    protected final short[] aboves = new short[COLUMNS];
+    protected final short[] belows = new short[COLUMNS];
+
+    public ChunkColumns() {
+        Arrays.fill(ys, UNKNOWN);
+    }
+
+    public static int index(int blockX, int blockZ) {
+        return (blockZ & 15) << 4 | (blockX & 15);
+    }
+
+    public boolean isKnown(int index) {
+        return ys[index] != UNKNOWN;
+    }
+
+    public void forget(int index) {
+        ys[index] = UNKNOWN;
+    }
+
+    @SuppressWarnings("deprecation")
+    public void fill(World world, int blockX, int blockZ) {
+        int index = index(blockX, blockZ);
+
+        // highest block Y is the first air block above the ground
+        int y = world.getHighestBlockYAt(blockX, blockZ) - 1;
+
+        ys[index] = (short) y;
+
+        if (y < 0) return;
+
+        tops[index] = (short) world.getBlockTypeIdAt(blockX, y, blockZ);
+        aboves[index] = (short) world.getBlockTypeIdAt(blockX, y + 1, blockZ);
+        belows[index] = y > 0 ? (short) world.getBlockTypeIdAt(blockX, y - 1, blockZ) : 0;
+    }
+
+    // filled from somewhere other than a live world
+    public void set(int index, int y, int top, int above, int below) {
+        ys[index] = (short) y;
+        tops[index] = (short) top;
+        aboves[index] = (short) above;
+        belows[index] = (short) below;
+    }
+
+    public int getY(int index) {
+        return ys[index];
+    }
+
+    public int getTop(int index) {
+        return tops[index];
+    }
+
+    public int getAbove(int index) {
+        return aboves[index];
+    }
+
+    public int getBelow(int index) {
+        return belows[index];
+    }
+}
@@ -0,0 +1,35 @@
+package gg.uhc.scatterer.search;
+
+public class CircularZone {
+
+    protected final double x;
+    protected final double z;
+    protected final double radius;
+    protected final double radiusSquared;
+
+    public CircularZone(double x, double z, double radius) {
+        this.x = x;
+        this.z = z;
+        this.radius = radius;
+        this.radiusSquared = radius * radius;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getZ() {
+        return z;
+    }
+
+    public double getRadius() {
+        return radius;
+    }
+
+    public boolean contains(double x, double z) {
+        double dx = this.x - x;
+        double dz = this.z - z;
+
+        return dx * dx + dz * dz < radiusSquared;
+    }
+}
@@ -0,0 +1,177 @@
+package gg.uhc.scatterer.search;
+
+import com.google.common.base.Preconditions;
+import org.bukkit.World;
+
+import java.io.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+// Columns already checked in one world so repeated probes and later scatters over the same
+// area don't read the chunks again. Holds at most maxChunks chunks, the least recently used
+// are dropped first. Only used from the server thread.
+//
+// Saved as a binary file named after the world's UID: header followed by the chunk key (long)
+// and each column's y, top, above, below (shorts) for every chunk
+public class ColumnCache {
+
+    public static final String FOLDER = "columns";
+    public static final String EXTENSION = ".columns";
+
+    protected static final int MAGIC = 0x53435443; // SCTC
+    protected static final int VERSION = 2;
+
+    // columns are only valid for the world they were read from. A regenerated world gets a new
+    // UID even when it keeps its name and seed, a new map with the same folder gets a new seed
+    protected final UUID worldId;
+    protected final long worldSeed;
+    protected final Map<Long, ChunkColumns> chunks;
+
+    // set when something was added since it was read or written
+    protected boolean dirty = false;
+
+    public ColumnCache(UUID worldId, long worldSeed, final int maxChunks) {
+        Preconditions.checkArgument(maxChunks > 0);
+        this.worldId = worldId;
+        this.worldSeed = worldSeed;
+
+        // access ordered so the eldest entry is always the least recently used chunk
+        chunks = new LinkedHashMap<Long, ChunkColumns>(16, .75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, ChunkColumns> eldest) {
+                return size() > maxChunks;
+            }
+        };
+    }
+
+    public static File getFile(File dataFolder, UUID worldId) {
+        return new File(new File(dataFolder, FOLDER), worldId + EXTENSION);
+    }
+
+    protected static long key(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    public UUID getWorldId() {
+        return worldId;
+    }
+
+    public long getWorldSeed() {
+        return worldSeed;
+    }
+
+    public int size() {
+        return chunks.size();
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    // returns the chunk holding x/z with that column filled in, reads the world if it wasn't cached
+    public ChunkColumns getColumn(World world, int blockX, int blockZ) {
+        long key = key(blockX >> 4, blockZ >> 4);
+        ChunkColumns chunk = chunks.get(key);
+
+        if (chunk == null) {
+            chunk = new ChunkColumns();
+            chunks.put(key, chunk);
+        }
+
+        if (!chunk.isKnown(ChunkColumns.index(blockX, blockZ))) {
+            chunk.fill(world, blockX, blockZ);
+            dirty = true;
+        }
+
+        return chunk;
+    }
+
+    // the column changed, it's read again next time it's checked
+    public void invalidate(int blockX, int blockZ) {
+        ChunkColumns chunk = chunks.get(key(blockX >> 4, blockZ >> 4));
+
+        if (chunk != null) {
+            chunk.forget(ChunkColumns.index(blockX, blockZ));
+            dirty = true;
+        }
+    }
+
+    public void clear() {
+        chunks.clear();
+        dirty = true;
+    }
+
+    public void write(File file) throws IOException {
+        File parent = file.getParentFile();
+
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Unable to create folder " + parent);
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(worldId.getMostSignificantBits());
+            out.writeLong(worldId.getLeastSignificantBits());
+            out.writeLong(worldSeed);
+            out.writeInt(chunks.size());
+
+            ChunkColumns chunk;
+            for (Map.Entry<Long, ChunkColumns> entry : chunks.entrySet()) {
+                out.writeLong(entry.getKey());
+                chunk = entry.getValue();
+
+                for (int i = 0; i < ChunkColumns.COLUMNS; i++) {
+                    out.writeShort(chunk.ys[i]);
+                    out.writeShort(chunk.tops[i]);
+                    out.writeShort(chunk.aboves[i]);
+                    out.writeShort(chunk.belows[i]);
+                }
+            }
+        } finally {
+            out.close();
+        }
+
+        dirty = false;
+    }
+
+    public static ColumnCache read(File file, int maxChunks) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+        try {
+            if (in.readInt() != MAGIC) throw new IOException("Not a column cache file: " + file);
+
+            int version = in.readInt();
+            if (version != VERSION) throw new IOException("Unsupported column cache version " + version + ": " + file);
+
+            UUID worldId = new UUID(in.readLong(), in.readLong());
+            long worldSeed = in.readLong();
+
+            int count = in.readInt();
+            ColumnCache cache = new ColumnCache(worldId, worldSeed, maxChunks);
+
+            ChunkColumns chunk;
+            for (int c = 0; c < count; c++) {
+                long key = in.readLong();
+                chunk = new ChunkColumns();
+
+                for (int i = 0; i < ChunkColumns.COLUMNS; i++) {
+                    chunk.ys[i] = in.readShort();
+                    chunk.tops[i] = in.readShort();
+                    chunk.aboves[i] = in.readShort();
+                    chunk.belows[i] = in.readShort();
+                }
+
+                // written least recently used first, anything over the limit is dropped as it's read
+                cache.chunks.put(key, chunk);
+            }
+
+            return cache;
+        } finally {
+            in.close();
+        }
+    }
+}
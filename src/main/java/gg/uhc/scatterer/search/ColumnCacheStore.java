@@ -0,0 +1,102 @@
+package gg.uhc.scatterer.search;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+// One column cache per world, read from the columns folder the first time a world is scattered
+// in and written back on shutdown when saving is on. Files are found by the world's UID so a
+// regenerated world with the same name starts with an empty cache. Blocks placed or broken by players drop
+// their column, other changes (explosions, flowing liquids, growing trees) aren't noticed
+public class ColumnCacheStore implements Listener {
+
+    protected final Plugin plugin;
+    protected final int maxChunks;
+    protected final boolean persist;
+
+    protected final Map<String, ColumnCache> caches = Maps.newHashMap();
+
+    public ColumnCacheStore(Plugin plugin, int maxChunks, boolean persist) {
+        Preconditions.checkArgument(maxChunks > 0);
+        this.plugin = plugin;
+        this.maxChunks = maxChunks;
+        this.persist = persist;
+    }
+
+    public ColumnCache get(World world) {
+        ColumnCache cache = caches.get(world.getName());
+
+        if (cache == null) {
+            cache = load(world);
+            caches.put(world.getName(), cache);
+        }
+
+        return cache;
+    }
+
+    protected ColumnCache load(World world) {
+        File file = ColumnCache.getFile(plugin.getDataFolder(), world.getUID());
+
+        if (persist && file.exists()) {
+            try {
+                ColumnCache cache = ColumnCache.read(file, maxChunks);
+
+                // same UID but a different map, nothing in the file is any use
+                if (cache.getWorldId().equals(world.getUID()) && cache.getWorldSeed() == world.getSeed()) return cache;
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        return new ColumnCache(world.getUID(), world.getSeed(), maxChunks);
+    }
+
+    public void clear() {
+        for (ColumnCache cache : caches.values()) {
+            cache.clear();
+        }
+    }
+
+    public void saveAll() {
+        if (!persist) return;
+
+        for (ColumnCache cache : caches.values()) {
+            if (!cache.isDirty()) continue;
+
+            try {
+                cache.write(ColumnCache.getFile(plugin.getDataFolder(), cache.getWorldId()));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    protected void invalidate(Block block) {
+        ColumnCache cache = caches.get(block.getWorld().getName());
+
+        if (cache != null) {
+            cache.invalidate(block.getX(), block.getZ());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void on(BlockPlaceEvent event) {
+        invalidate(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void on(BlockBreakEvent event) {
+        invalidate(event.getBlock());
+    }
+}
@@ -0,0 +1,13 @@
+package gg.uhc.scatterer.search;
+
+import java.util.Collection;
+
+// implementations must be safe to query from worker threads while
+// the server thread is adding zones
+public interface DeadZoneStore {
+    void add(CircularZone zone);
+    void addAll(Collection<CircularZone> zones);
+    boolean isAllowed(double x, double z);
+    int size();
+    void clear();
+}
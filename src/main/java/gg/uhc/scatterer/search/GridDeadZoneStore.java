@@ -0,0 +1,103 @@
+package gg.uhc.scatterer.search;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Buckets zones into a uniform grid so a lookup only has to check the zones
+// overlapping the cell the point is in instead of every zone
+public class GridDeadZoneStore implements DeadZoneStore {
+
+    // zones covering more cells than this are kept in a separate list instead
+    protected static final int MAX_CELLS_PER_ZONE = 1024;
+
+    protected final double cellSize;
+    protected final ConcurrentMap<Long, List<CircularZone>> cells = new ConcurrentHashMap<Long, List<CircularZone>>();
+    protected final List<CircularZone> oversized = new CopyOnWriteArrayList<CircularZone>();
+    protected final AtomicInteger size = new AtomicInteger();
+
+    public GridDeadZoneStore(double cellSize) {
+        Preconditions.checkArgument(cellSize > 0);
+        this.cellSize = cellSize;
+    }
+
+    protected static long key(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+
+    protected int cell(double coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    @Override
+    public void add(CircularZone zone) {
+        size.incrementAndGet();
+
+        int startX = cell(zone.getX() - zone.getRadius());
+        int endX = cell(zone.getX() + zone.getRadius());
+        int startZ = cell(zone.getZ() - zone.getRadius());
+        int endZ = cell(zone.getZ() + zone.getRadius());
+
+        if ((long) (endX - startX + 1) * (endZ - startZ + 1) > MAX_CELLS_PER_ZONE) {
+            oversized.add(zone);
+            return;
+        }
+
+        List<CircularZone> bucket, existing;
+        for (int x = startX; x <= endX; x++) {
+            for (int z = startZ; z <= endZ; z++) {
+                bucket = cells.get(key(x, z));
+
+                if (bucket == null) {
+                    bucket = new CopyOnWriteArrayList<CircularZone>();
+                    existing = cells.putIfAbsent(key(x, z), bucket);
+
+                    if (existing != null) bucket = existing;
+                }
+
+                bucket.add(zone);
+            }
+        }
+    }
+
+    @Override
+    public void addAll(Collection<CircularZone> zones) {
+        for (CircularZone zone : zones) {
+            add(zone);
+        }
+    }
+
+    @Override
+    public boolean isAllowed(double x, double z) {
+        for (CircularZone zone : oversized) {
+            if (zone.contains(x, z)) return false;
+        }
+
+        List<CircularZone> bucket = cells.get(key(cell(x), cell(z)));
+
+        if (bucket == null) return true;
+
+        for (CircularZone zone : bucket) {
+            if (zone.contains(x, z)) return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public void clear() {
+        cells.clear();
+        oversized.clear();
+        size.set(0);
+    }
+}
@@ -0,0 +1,37 @@
+package gg.uhc.scatterer.search;
+
+// Square split into a grid with at least count cells, each candidate is somewhere
+// around the middle of a cell. Cells are used in a seeded random order
+public class JitteredGridCandidates extends SequenceCandidates {
+
+    protected final double startX;
+    protected final double startZ;
+    protected final int size;
+    protected final int[] order;
+
+    public JitteredGridCandidates(double centreX, double centreZ, double radius, int count, long seed) {
+        super(gridSize(count) * gridSize(count), radius * 2 / gridSize(count));
+        this.startX = centreX - radius;
+        this.startZ = centreZ - radius;
+        this.size = gridSize(count);
+        this.order = shuffledOrder(slots, seed);
+    }
+
+    // cells along each side, enough for every player/team to get a cell
+    protected static int gridSize(int count) {
+        return (int) Math.ceil(Math.sqrt(Math.max(1, count)));
+    }
+
+    @Override
+    protected void slot(int slot, double[] out) {
+        int cell = order[slot];
+
+        out[0] = startX + (cell % size + .5D) * spacing;
+        out[1] = startZ + (cell / size + .5D) * spacing;
+    }
+
+    @Override
+    protected double getFirstPassJitter() {
+        return spacing / 4;
+    }
+}
@@ -0,0 +1,39 @@
+package gg.uhc.scatterer.search;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class ListDeadZoneStore implements DeadZoneStore {
+
+    protected final List<CircularZone> zones = new CopyOnWriteArrayList<CircularZone>();
+
+    @Override
+    public void add(CircularZone zone) {
+        zones.add(zone);
+    }
+
+    @Override
+    public void addAll(Collection<CircularZone> zones) {
+        this.zones.addAll(zones);
+    }
+
+    @Override
+    public boolean isAllowed(double x, double z) {
+        for (CircularZone zone : zones) {
+            if (zone.contains(x, z)) return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return zones.size();
+    }
+
+    @Override
+    public void clear() {
+        zones.clear();
+    }
+}
@@ -0,0 +1,570 @@
+package gg.uhc.scatterer.search;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import gg.uhc.scatterer.metrics.ScatterMetrics;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Finds scatter locations without blocking the server thread. Candidates are generated and
+// checked against the initial dead zones on worker threads, only the block checks and the
+// zones around already placed locations are checked on the server thread, at most
+// checksPerTick per tick. With snapshots the block checks run on the workers too, against
+// chunk snapshots captured on the server thread, and the server thread only checks the
+// placed zones. A batch checked that way costs a single check.
+//
+// Batch n is always generated from stream n of the seed and batches are consumed in order,
+// so the same seed in the same world gives the same locations no matter how many threads run
+public class LocationSearch {
+
+    public interface Callback {
+        void onReattempt(int attempt);
+
+        // only called when streaming, the location is never thrown away by a later reattempt
+        void onFound(Location location);
+    }
+
+    protected static final int BATCH_SIZE = 64;
+    protected static final int QUEUED_BATCHES = 8;
+
+    protected final Plugin plugin;
+    protected final ExecutorService workers;
+    protected final World world;
+    protected final CandidateGenerator generator;
+    protected final int maxHeight;
+
+    // never changes during the search so workers can filter against it
+    protected final DeadZoneStore initialZones;
+    // zones around the locations found so far, only touched on the server thread
+    protected final DeadZoneStore placedZones;
+
+    protected Optional<MaterialTable> materials = Optional.absent();
+    protected Optional<Callback> callback = Optional.absent();
+    protected Optional<ScatterMetrics> metrics = Optional.absent();
+    protected Optional<ColumnCache> columns = Optional.absent();
+    protected Optional<AreaMask> mask = Optional.absent();
+    protected Optional<SnapshotStore> snapshots = Optional.absent();
+    protected long seed = System.nanoTime();
+    protected double minRadius = 0;
+    protected int maxAttempts = 250;
+    protected int reattempts = 1;
+    protected int checksPerTick = 40;
+    protected int threads = 1;
+    protected int spares = 0;
+    protected boolean streaming = false;
+
+    protected final ConcurrentMap<Long, CandidateBatch> ready = new ConcurrentHashMap<Long, CandidateBatch>();
+    protected final Semaphore queueSpace = new Semaphore(QUEUED_BATCHES);
+    protected final AtomicLong nextBatch = new AtomicLong();
+    protected final AtomicInteger runningWorkers = new AtomicInteger();
+    protected final SettableFuture<List<Location>> future = SettableFuture.create();
+    protected final List<Location> found = Lists.newArrayList();
+
+    protected volatile boolean finished = false;
+    protected boolean started = false;
+    protected long nextConsumed = 0;
+    protected int round = 0;
+    protected int required = 0;
+    protected int attempts = 0;
+    protected CandidateBatch current = null;
+
+    // totals over every round for the metrics
+    protected long totalAttempts = 0;
+    protected long deadZoneRejections = 0;
+    protected long blockRejections = 0;
+    protected long regionRejections = 0;
+    protected long biomeRejections = 0;
+    protected long checkNanos = 0;
+    protected long maxCheckNanos = 0;
+    protected BukkitRunnable checkTask = null;
+
+    public LocationSearch(Plugin plugin, ExecutorService workers, World world, CandidateGenerator generator, DeadZoneStore initialZones, DeadZoneStore placedZones) {
+        this.plugin = plugin;
+        this.workers = workers;
+        this.world = world;
+        this.generator = generator;
+        this.initialZones = initialZones;
+        this.placedZones = placedZones;
+        this.maxHeight = world.getMaxHeight();
+    }
+
+    public void setMaterials(MaterialTable materials) {
+        this.materials = Optional.fromNullable(materials);
+    }
+
+    public void setCallback(Callback callback) {
+        this.callback = Optional.fromNullable(callback);
+    }
+
+    public void setMetrics(ScatterMetrics metrics) {
+        this.metrics = Optional.fromNullable(metrics);
+    }
+
+    // columns are looked up here first and only read from the world the first time they're checked
+    public void setColumnCache(ColumnCache columns) {
+        this.columns = Optional.fromNullable(columns);
+    }
+
+    // regions and biomes to keep locations in/out of, must be set before starting
+    public void setMask(AreaMask mask) {
+        this.mask = Optional.fromNullable(mask);
+    }
+
+    // checks blocks on the workers against snapshots from the store instead of on the server thread
+    public void setSnapshots(SnapshotStore snapshots) {
+        this.snapshots = Optional.fromNullable(snapshots);
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public void setMinRadius(double minRadius) {
+        this.minRadius = minRadius;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public void setReattempts(int reattempts) {
+        this.reattempts = reattempts;
+    }
+
+    public void setChecksPerTick(int checksPerTick) {
+        this.checksPerTick = checksPerTick;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    // hands out each location as it's found, a reattempt keeps them and only searches for the rest
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    // extra locations to look for once the required ones are found. Running out of attempts on
+    // them finishes the search with whatever spares it has instead of failing
+    public void setSpares(int spares) {
+        Preconditions.checkArgument(spares >= 0);
+        this.spares = spares;
+    }
+
+    public ListenableFuture<List<Location>> start(int count) {
+        Preconditions.checkArgument(count > 0);
+        Preconditions.checkState(!started, "Search already started");
+
+        started = true;
+        required = count;
+        resetRound();
+
+        if (metrics.isPresent()) {
+            metrics.get().startSearch();
+        }
+
+        startWorkers();
+        scheduleChecks();
+
+        return future;
+    }
+
+    // keeps up to threads batches being made at once. Each worker makes a single batch and gives
+    // its thread back, searches in other worlds and other jobs on the pool get a turn in between
+    protected void startWorkers() {
+        int running;
+        while (!finished) {
+            running = runningWorkers.get();
+
+            if (running >= threads || !queueSpace.tryAcquire()) return;
+
+            if (!runningWorkers.compareAndSet(running, running + 1)) {
+                queueSpace.release();
+                continue;
+            }
+
+            workers.submit(new CandidateWorker(nextBatch.getAndIncrement()));
+        }
+    }
+
+    // a worker threw, the batch it was making will never turn up
+    protected void fail(Throwable cause) {
+        if (future.setException(cause)) {
+            finished = true;
+        }
+    }
+
+    protected void scheduleChecks() {
+        checkTask = new CheckTask();
+        checkTask.runTaskTimer(plugin, 1, 1);
+    }
+
+    public void cancel() {
+        if (finished) return;
+
+        future.cancel(false);
+        stop();
+        recordMetrics();
+    }
+
+    protected void stop() {
+        finished = true;
+        ready.clear();
+
+        if (snapshots.isPresent()) {
+            snapshots.get().clear();
+        }
+
+        if (checkTask != null) {
+            checkTask.cancel();
+        }
+    }
+
+    protected void recordMetrics() {
+        if (!metrics.isPresent()) return;
+
+        metrics.get().endSearch(round);
+        metrics.get().recordSearch(totalAttempts, found.size(), deadZoneRejections, blockRejections, checkNanos, maxCheckNanos);
+        metrics.get().recordFilters(regionRejections, biomeRejections);
+
+        if (snapshots.isPresent()) {
+            metrics.get().recordSnapshots(snapshots.get().getCaptured(), snapshots.get().getLoaded());
+        }
+    }
+
+    protected void resetRound() {
+        found.clear();
+        attempts = 0;
+        placedZones.clear();
+        round++;
+
+        // carry on from the next batch, keeps reattempts reproducible for the same seed
+        current = null;
+    }
+
+    protected void failRound() {
+        if (found.size() >= required) {
+            complete();
+            return;
+        }
+
+        if (round >= reattempts) {
+            stop();
+            future.setException(new LocationSearchException("Failed to find locations for all players after " + reattempts + " attempt/s"));
+            return;
+        }
+
+        if (callback.isPresent()) {
+            callback.get().onReattempt(round);
+        }
+
+        if (!streaming) {
+            resetRound();
+            return;
+        }
+
+        // the ones already found may be teleported by now, their zones stay for the next round
+        attempts = 0;
+        round++;
+        current = null;
+    }
+
+    protected void accept(Location location) {
+        found.add(location);
+        attempts = 0;
+
+        if (minRadius > 0) {
+            placedZones.add(new CircularZone(location.getX(), location.getZ(), minRadius));
+        }
+
+        if (streaming && callback.isPresent()) {
+            callback.get().onFound(location);
+        }
+
+        if (found.size() == required + spares) {
+            complete();
+        }
+    }
+
+    protected void complete() {
+        stop();
+        future.set(ImmutableList.copyOf(found));
+    }
+
+    @SuppressWarnings("deprecation")
+    protected Location validate(double x, double z) {
+        int blockX = (int) Math.floor(x);
+        int blockZ = (int) Math.floor(z);
+
+        if (columns.isPresent()) return validateCached(blockX, blockZ);
+
+        // highest block Y is the first air block above the ground
+        int y = world.getHighestBlockYAt(blockX, blockZ) - 1;
+
+        if (y < 0) return null;
+
+        // type ids avoid creating a Block object for each probe
+        if (materials.isPresent()) {
+            Material top = Material.getMaterial(world.getBlockTypeIdAt(blockX, y, blockZ));
+            Material above = Material.getMaterial(world.getBlockTypeIdAt(blockX, y + 1, blockZ));
+            Material below = y > 0 ? Material.getMaterial(world.getBlockTypeIdAt(blockX, y - 1, blockZ)) : Material.AIR;
+
+            if (!materials.get().isSafe(top, above, below)) return null;
+        }
+
+        return new Location(world, blockX + .5D, y, blockZ + .5D);
+    }
+
+    @SuppressWarnings("deprecation")
+    protected Location validateCached(int blockX, int blockZ) {
+        ChunkColumns chunk = columns.get().getColumn(world, blockX, blockZ);
+        int index = ChunkColumns.index(blockX, blockZ);
+        int y = chunk.getY(index);
+
+        if (y < 0) return null;
+
+        if (materials.isPresent()) {
+            Material top = Material.getMaterial(chunk.getTop(index));
+            Material above = Material.getMaterial(chunk.getAbove(index));
+            Material below = y > 0 ? Material.getMaterial(chunk.getBelow(index)) : Material.AIR;
+
+            if (!materials.get().isSafe(top, above, below)) return null;
+        }
+
+        return new Location(world, blockX + .5D, y, blockZ + .5D);
+    }
+
+    // worker side check against a snapshot, same rules as validate
+    @SuppressWarnings("deprecation")
+    protected int validateSnapshot(ChunkSnapshot snapshot, int blockX, int blockZ) {
+        int x = blockX & 15;
+        int z = blockZ & 15;
+
+        if (mask.isPresent() && mask.get().hasBiomes() && mask.get().isExcludedBiome(snapshot.getBiome(x, z))) {
+            return CandidateBatch.BIOME_REJECTED;
+        }
+
+        int y = snapshot.getHighestBlockYAt(x, z) - 1;
+
+        if (y < 0) return CandidateBatch.BLOCK_REJECTED;
+
+        if (materials.isPresent()) {
+            Material top = Material.getMaterial(snapshot.getBlockTypeId(x, y, z));
+            // snapshots don't go past the build height
+            Material above = y + 1 < maxHeight ? Material.getMaterial(snapshot.getBlockTypeId(x, y + 1, z)) : Material.AIR;
+            Material below = y > 0 ? Material.getMaterial(snapshot.getBlockTypeId(x, y - 1, z)) : Material.AIR;
+
+            if (!materials.get().isSafe(top, above, below)) return CandidateBatch.BLOCK_REJECTED;
+        }
+
+        return y;
+    }
+
+    // runs up to checksPerTick block checks, returns early if the next batch isn't ready yet
+    protected void runChecks() {
+        // cancelled, or failed on a worker
+        if (future.isDone()) {
+            stop();
+            recordMetrics();
+            return;
+        }
+
+        long start = System.nanoTime();
+
+        if (snapshots.isPresent()) {
+            snapshots.get().capture();
+        }
+
+        checkCandidates();
+
+        long taken = System.nanoTime() - start;
+        checkNanos += taken;
+        maxCheckNanos = Math.max(maxCheckNanos, taken);
+
+        // found everything or ran out of attempts this tick
+        if (finished) {
+            recordMetrics();
+        }
+    }
+
+    protected void checkCandidates() {
+        double x, z;
+        int y;
+        Location location;
+        int budget = checksPerTick;
+        while (budget > 0 && !finished) {
+            if (current == null || !current.hasNext()) {
+                // batches must be used in order, wait if the next one isn't done yet
+                current = ready.remove(nextConsumed);
+
+                if (current == null) return;
+
+                nextConsumed++;
+                queueSpace.release();
+                startWorkers();
+
+                if (current.isChecked()) {
+                    budget--;
+                }
+
+                attempts += current.rejected + current.biomeRejected;
+                totalAttempts += current.rejected + current.biomeRejected;
+                deadZoneRejections += current.rejected;
+                biomeRejections += current.biomeRejected;
+                regionRejections += current.masked;
+
+                // a batch with nothing inside the regions counts once, a search that can't hit them still ends
+                if (current.masked == BATCH_SIZE) {
+                    attempts++;
+                    totalAttempts++;
+                }
+            } else {
+                x = current.nextX();
+                z = current.nextZ();
+                y = current.nextY();
+                current.advance();
+                attempts++;
+                totalAttempts++;
+
+                if (y == CandidateBatch.UNCHECKED) {
+                    budget--;
+                }
+
+                if (!placedZones.isAllowed(x, z)) {
+                    deadZoneRejections++;
+                } else if (y >= 0) {
+                    accept(new Location(world, Math.floor(x) + .5D, y, Math.floor(z) + .5D));
+                    continue;
+                } else if (y == CandidateBatch.BIOME_REJECTED) {
+                    biomeRejections++;
+                } else if (y == CandidateBatch.BLOCK_REJECTED) {
+                    blockRejections++;
+                } else if (mask.isPresent() && !mask.get().isAllowedBiome(world, x, z)) {
+                    // no block lookups for excluded biomes
+                    biomeRejections++;
+                } else {
+                    location = validate(x, z);
+
+                    if (location != null) {
+                        accept(location);
+                        continue;
+                    }
+
+                    blockRejections++;
+                }
+            }
+
+            if (attempts >= maxAttempts) {
+                failRound();
+            }
+        }
+    }
+
+    class CheckTask extends BukkitRunnable {
+        @Override
+        public void run() {
+            runChecks();
+        }
+    }
+
+    class CandidateWorker implements Runnable {
+
+        protected final long index;
+
+        CandidateWorker(long index) {
+            this.index = index;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (!finished) {
+                    ready.put(index, makeBatch());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable e) {
+                fail(e);
+            } finally {
+                runningWorkers.decrementAndGet();
+            }
+
+            // carries on if there's room for another batch, otherwise the server thread starts
+            // the next one when it uses a batch up
+            startWorkers();
+        }
+
+        protected CandidateBatch makeBatch() throws InterruptedException {
+            double[] xs = new double[BATCH_SIZE];
+            double[] zs = new double[BATCH_SIZE];
+
+            CandidateBatch batch = new CandidateBatch(index, BATCH_SIZE);
+            generator.generate(index * BATCH_SIZE, SplitMixRandom.forStream(seed, index), xs, zs);
+
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                if (mask.isPresent() && !mask.get().isInRegions(xs[i], zs[i])) {
+                    batch.masked++;
+                } else if (!initialZones.isAllowed(xs[i], zs[i])) {
+                    batch.rejected++;
+                } else if (mask.isPresent() && mask.get().isKnownExcluded(xs[i], zs[i])) {
+                    batch.biomeRejected++;
+                } else {
+                    batch.add(xs[i], zs[i]);
+                }
+            }
+
+            if (snapshots.isPresent()) {
+                checkSnapshots(batch);
+            }
+
+            return batch;
+        }
+
+        // checks every candidate once the snapshot of its chunk is there, asking for all of them first
+        protected void checkSnapshots(CandidateBatch batch) throws InterruptedException {
+            int[] ys = new int[batch.size];
+            Arrays.fill(ys, CandidateBatch.UNCHECKED);
+
+            int blockX, blockZ;
+            ChunkSnapshot snapshot;
+            int remaining = batch.size;
+            while (remaining > 0 && !finished) {
+                for (int i = 0; i < batch.size; i++) {
+                    if (ys[i] != CandidateBatch.UNCHECKED) continue;
+
+                    blockX = (int) Math.floor(batch.xs[i]);
+                    blockZ = (int) Math.floor(batch.zs[i]);
+                    snapshot = snapshots.get().get(blockX >> 4, blockZ >> 4);
+
+                    if (snapshot == null) continue;
+
+                    ys[i] = validateSnapshot(snapshot, blockX, blockZ);
+                    remaining--;
+                }
+
+                if (remaining > 0) {
+                    snapshots.get().awaitCapture(50);
+                }
+            }
+
+            batch.ys = ys;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package gg.uhc.scatterer.search;
+
+public class LocationSearchException extends Exception {
+    public LocationSearchException(String message) {
+        super(message);
+    }
+}
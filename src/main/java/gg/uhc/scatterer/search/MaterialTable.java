@@ -0,0 +1,101 @@
+package gg.uhc.scatterer.search;
+
+import com.google.common.collect.Sets;
+import org.bukkit.Material;
+
+import java.util.Collection;
+import java.util.Set;
+
+// Flags for each material indexed by ordinal so checking a block is a single array read.
+// Can be reloaded while searches are running, they pick up the new flags on their next check
+public class MaterialTable {
+
+    protected static final byte ALLOWED = 1;
+    protected static final byte REQUIRES_AIR_ABOVE = 1 << 1;
+    protected static final byte NO_LIQUID_BELOW = 1 << 2;
+
+    protected static final Material[] MATERIALS = Material.values();
+
+    protected volatile byte[] flags = new byte[MATERIALS.length];
+
+    public MaterialTable(Collection<Material> allowed, Collection<Material> requireAirAbove, Collection<Material> noLiquidBelow) {
+        load(allowed, requireAirAbove, noLiquidBelow);
+    }
+
+    public void load(Collection<Material> allowed, Collection<Material> requireAirAbove, Collection<Material> noLiquidBelow) {
+        byte[] updated = new byte[MATERIALS.length];
+
+        for (Material material : allowed) {
+            updated[material.ordinal()] |= ALLOWED;
+        }
+
+        for (Material material : requireAirAbove) {
+            updated[material.ordinal()] |= REQUIRES_AIR_ABOVE;
+        }
+
+        for (Material material : noLiquidBelow) {
+            updated[material.ordinal()] |= NO_LIQUID_BELOW;
+        }
+
+        // swap in one go so readers never see a half loaded table
+        flags = updated;
+    }
+
+    public boolean isAllowed(Material material) {
+        return (flags[material.ordinal()] & ALLOWED) != 0;
+    }
+
+    // full check of a column, top is the block that would be stood on. Ids the server
+    // doesn't know come through as null and are never safe
+    public boolean isSafe(Material top, Material above, Material below) {
+        if (top == null || above == null || below == null) return false;
+
+        byte flag = flags[top.ordinal()];
+
+        if ((flag & ALLOWED) == 0) return false;
+        if ((flag & REQUIRES_AIR_ABOVE) != 0 && above != Material.AIR) return false;
+        if ((flag & NO_LIQUID_BELOW) != 0 && isLiquid(below)) return false;
+
+        return true;
+    }
+
+    public static boolean isLiquid(Material material) {
+        switch (material) {
+            case WATER:
+            case STATIONARY_WATER:
+            case LAVA:
+            case STATIONARY_LAVA:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    public Set<Material> getAllowed() {
+        Set<Material> allowed = Sets.newHashSet();
+        byte[] current = flags;
+
+        for (int i = 0; i < current.length; i++) {
+            if ((current[i] & ALLOWED) != 0) {
+                allowed.add(MATERIALS[i]);
+            }
+        }
+
+        return allowed;
+    }
+
+    // changes whenever the allowed blocks or their rules change, uses names so it
+    // stays the same between server versions that add materials
+    public int fingerprint() {
+        byte[] current = flags;
+
+        int hash = 1;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] != 0) {
+                hash = 31 * hash + MATERIALS[i].name().hashCode() * current[i];
+            }
+        }
+
+        return hash | 1;
+    }
+}
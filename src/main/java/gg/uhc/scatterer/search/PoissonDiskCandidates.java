@@ -0,0 +1,128 @@
+package gg.uhc.scatterer.search;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// Poisson disk sampling (Bridson's algorithm) over a square, points are never closer than
+// the spacing but still look random. Spacing is picked to give about twice as many points
+// as needed so there are spares when some land on bad blocks
+public class PoissonDiskCandidates extends SequenceCandidates {
+
+    // candidates tried around each active point before it's retired
+    protected static final int SAMPLES_PER_POINT = 30;
+    // points per spacing squared for a finished Poisson disk set
+    protected static final double DENSITY = .7D;
+
+    protected final double[] xs;
+    protected final double[] zs;
+
+    public PoissonDiskCandidates(double centreX, double centreZ, double radius, int count, long seed) {
+        this(centreX, centreZ, radius, Math.max(1D, Math.sqrt(DENSITY * 4 * radius * radius / (2D * Math.max(1, count)))), seed);
+    }
+
+    protected PoissonDiskCandidates(double centreX, double centreZ, double radius, double spacing, long seed) {
+        this(generate(centreX - radius, centreZ - radius, radius * 2, spacing, new SplitMixRandom(seed)), spacing, seed);
+    }
+
+    protected PoissonDiskCandidates(double[][] points, double spacing, long seed) {
+        super(points[0].length, spacing);
+
+        int[] order = shuffledOrder(slots, SplitMixRandom.mix(seed));
+        this.xs = new double[slots];
+        this.zs = new double[slots];
+
+        for (int i = 0; i < slots; i++) {
+            xs[i] = points[0][order[i]];
+            zs[i] = points[1][order[i]];
+        }
+    }
+
+    @Override
+    protected void slot(int slot, double[] out) {
+        out[0] = xs[slot];
+        out[1] = zs[slot];
+    }
+
+    protected static double[][] generate(double startX, double startZ, double width, double spacing, Random random) {
+        double cellSize = spacing / Math.sqrt(2);
+        int cells = Math.max(1, (int) Math.ceil(width / cellSize));
+
+        // index + 1 of the point in each cell, 0 for empty
+        int[] grid = new int[cells * cells];
+
+        // worst case every cell has a point
+        double[] xs = new double[cells * cells];
+        double[] zs = new double[cells * cells];
+        int[] active = new int[cells * cells];
+        int count = 0, activeCount = 0;
+
+        xs[0] = startX + random.nextDouble() * width;
+        zs[0] = startZ + random.nextDouble() * width;
+        grid[cellIndex(xs[0] - startX, zs[0] - startZ, cellSize, cells)] = 1;
+        active[activeCount++] = count++;
+
+        double angle, distance, x, z;
+        int activeIndex, point, i;
+        boolean placed;
+        while (activeCount > 0) {
+            activeIndex = random.nextInt(activeCount);
+            point = active[activeIndex];
+            placed = false;
+
+            for (i = 0; i < SAMPLES_PER_POINT; i++) {
+                // somewhere between 1 and 2 spacings away
+                angle = random.nextDouble() * 2 * Math.PI;
+                distance = spacing * (1 + random.nextDouble());
+                x = xs[point] + distance * Math.cos(angle);
+                z = zs[point] + distance * Math.sin(angle);
+
+                if (x < startX || z < startZ || x >= startX + width || z >= startZ + width) continue;
+                if (!isFarEnough(x, z, startX, startZ, xs, zs, grid, cellSize, cells, spacing)) continue;
+
+                xs[count] = x;
+                zs[count] = z;
+                grid[cellIndex(x - startX, z - startZ, cellSize, cells)] = count + 1;
+                active[activeCount++] = count++;
+                placed = true;
+                break;
+            }
+
+            // retire the point once nothing more fits around it
+            if (!placed) {
+                active[activeIndex] = active[--activeCount];
+            }
+        }
+
+        return new double[][]{Arrays.copyOf(xs, count), Arrays.copyOf(zs, count)};
+    }
+
+    protected static int cellIndex(double x, double z, double cellSize, int cells) {
+        int cellX = Math.min(cells - 1, (int) (x / cellSize));
+        int cellZ = Math.min(cells - 1, (int) (z / cellSize));
+        return cellZ * cells + cellX;
+    }
+
+    protected static boolean isFarEnough(double x, double z, double startX, double startZ, double[] xs, double[] zs, int[] grid, double cellSize, int cells, double spacing) {
+        int cellX = Math.min(cells - 1, (int) ((x - startX) / cellSize));
+        int cellZ = Math.min(cells - 1, (int) ((z - startZ) / cellSize));
+        double spacingSquared = spacing * spacing;
+
+        // any point closer than the spacing must be within 2 cells
+        int other;
+        double dx, dz;
+        for (int checkX = Math.max(0, cellX - 2); checkX <= Math.min(cells - 1, cellX + 2); checkX++) {
+            for (int checkZ = Math.max(0, cellZ - 2); checkZ <= Math.min(cells - 1, cellZ + 2); checkZ++) {
+                other = grid[checkZ * cells + checkX] - 1;
+
+                if (other < 0) continue;
+
+                dx = xs[other] - x;
+                dz = zs[other] - z;
+
+                if (dx * dx + dz * dz < spacingSquared) return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,72 @@
+package gg.uhc.scatterer.search;
+
+import com.google.common.base.Preconditions;
+
+// Any simple polygon given by its corners in order, the last corner joins back to the first
+public class PolygonRegion implements Region {
+
+    protected final double[] xs;
+    protected final double[] zs;
+
+    protected final RectangleRegion bounds;
+
+    public PolygonRegion(double[] xs, double[] zs) {
+        Preconditions.checkArgument(xs.length == zs.length);
+        Preconditions.checkArgument(xs.length >= 3, "A polygon needs at least 3 corners");
+        this.xs = xs;
+        this.zs = zs;
+
+        double minX = xs[0], maxX = xs[0], minZ = zs[0], maxZ = zs[0];
+        for (int i = 1; i < xs.length; i++) {
+            minX = Math.min(minX, xs[i]);
+            maxX = Math.max(maxX, xs[i]);
+            minZ = Math.min(minZ, zs[i]);
+            maxZ = Math.max(maxZ, zs[i]);
+        }
+
+        bounds = new RectangleRegion(minX, minZ, maxX, maxZ);
+    }
+
+    // even-odd rule, counts how many edges a line from the point to +x crosses
+    @Override
+    public boolean contains(double x, double z) {
+        if (!bounds.contains(x, z)) return false;
+
+        boolean inside = false;
+        for (int i = 0, j = xs.length - 1; i < xs.length; j = i++) {
+            if ((zs[i] > z) != (zs[j] > z) && x < (xs[j] - xs[i]) * (z - zs[i]) / (zs[j] - zs[i]) + xs[i]) {
+                inside = !inside;
+            }
+        }
+
+        return inside;
+    }
+
+    @Override
+    public int classify(double minX, double minZ, double maxX, double maxZ) {
+        if (bounds.classify(minX, minZ, maxX, maxZ) == OUTSIDE) return OUTSIDE;
+
+        for (int i = 0, j = xs.length - 1; i < xs.length; j = i++) {
+            if (crosses(xs[j], zs[j], xs[i], zs[i], minX, minZ, maxX, maxZ)) return PARTIAL;
+        }
+
+        // no edge goes through the box so all of it is on the same side
+        return contains((minX + maxX) / 2, (minZ + maxZ) / 2) ? INSIDE : OUTSIDE;
+    }
+
+    // whether the edge touches the box, true if the box corners aren't all on one side of the edge's line
+    protected static boolean crosses(double x1, double z1, double x2, double z2, double minX, double minZ, double maxX, double maxZ) {
+        if (Math.max(x1, x2) < minX || Math.min(x1, x2) > maxX || Math.max(z1, z2) < minZ || Math.min(z1, z2) > maxZ) return false;
+
+        double a = side(x1, z1, x2, z2, minX, minZ);
+        double b = side(x1, z1, x2, z2, maxX, minZ);
+        double c = side(x1, z1, x2, z2, minX, maxZ);
+        double d = side(x1, z1, x2, z2, maxX, maxZ);
+
+        return !((a > 0 && b > 0 && c > 0 && d > 0) || (a < 0 && b < 0 && c < 0 && d < 0));
+    }
+
+    protected static double side(double x1, double z1, double x2, double z2, double x, double z) {
+        return (x2 - x1) * (z - z1) - (z2 - z1) * (x - x1);
+    }
+}
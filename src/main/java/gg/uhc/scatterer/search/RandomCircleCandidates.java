@@ -0,0 +1,29 @@
+package gg.uhc.scatterer.search;
+
+import java.util.Random;
+
+public class RandomCircleCandidates implements CandidateGenerator {
+
+    protected final double centreX;
+    protected final double centreZ;
+    protected final double radius;
+
+    public RandomCircleCandidates(double centreX, double centreZ, double radius) {
+        this.centreX = centreX;
+        this.centreZ = centreZ;
+        this.radius = radius;
+    }
+
+    @Override
+    public void generate(long index, Random random, double[] xs, double[] zs) {
+        double angle, distance;
+        for (int i = 0; i < xs.length; i++) {
+            angle = random.nextDouble() * 2 * Math.PI;
+            // sqrt keeps points uniform over the area instead of bunching at the centre
+            distance = Math.sqrt(random.nextDouble()) * radius;
+
+            xs[i] = centreX + distance * Math.cos(angle);
+            zs[i] = centreZ + distance * Math.sin(angle);
+        }
+    }
+}
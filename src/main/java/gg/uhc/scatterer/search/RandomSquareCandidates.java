@@ -0,0 +1,24 @@
+package gg.uhc.scatterer.search;
+
+import java.util.Random;
+
+public class RandomSquareCandidates implements CandidateGenerator {
+
+    protected final double centreX;
+    protected final double centreZ;
+    protected final double radius;
+
+    public RandomSquareCandidates(double centreX, double centreZ, double radius) {
+        this.centreX = centreX;
+        this.centreZ = centreZ;
+        this.radius = radius;
+    }
+
+    @Override
+    public void generate(long index, Random random, double[] xs, double[] zs) {
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = centreX + (random.nextDouble() * 2 - 1) * radius;
+            zs[i] = centreZ + (random.nextDouble() * 2 - 1) * radius;
+        }
+    }
+}
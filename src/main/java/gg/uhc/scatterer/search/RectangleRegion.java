@@ -0,0 +1,31 @@
+package gg.uhc.scatterer.search;
+
+public class RectangleRegion implements Region {
+
+    protected final double minX;
+    protected final double minZ;
+    protected final double maxX;
+    protected final double maxZ;
+
+    // corners can be given in any order
+    public RectangleRegion(double x1, double z1, double x2, double z2) {
+        this.minX = Math.min(x1, x2);
+        this.minZ = Math.min(z1, z2);
+        this.maxX = Math.max(x1, x2);
+        this.maxZ = Math.max(z1, z2);
+    }
+
+    @Override
+    public boolean contains(double x, double z) {
+        return x >= minX && x <= maxX && z >= minZ && z <= maxZ;
+    }
+
+    @Override
+    public int classify(double minX, double minZ, double maxX, double maxZ) {
+        if (maxX < this.minX || minX > this.maxX || maxZ < this.minZ || minZ > this.maxZ) return OUTSIDE;
+
+        if (minX >= this.minX && maxX <= this.maxX && minZ >= this.minZ && maxZ <= this.maxZ) return INSIDE;
+
+        return PARTIAL;
+    }
+}
@@ -0,0 +1,15 @@
+package gg.uhc.scatterer.search;
+
+// An area of the world, used to mark which chunks of a scatter can be skipped without checking
+public interface Region {
+
+    int INSIDE = 0;
+    int OUTSIDE = 1;
+    // some of the area is inside, each location has to be checked on its own
+    int PARTIAL = 2;
+
+    boolean contains(double x, double z);
+
+    // where the box is compared to the region, PARTIAL is always a safe answer
+    int classify(double minX, double minZ, double maxX, double maxZ);
+}
@@ -0,0 +1,61 @@
+package gg.uhc.scatterer.search;
+
+import java.util.Random;
+
+// Candidates from a fixed set of evenly spaced slots. The first pass over the slots uses them
+// as placed, later passes (when slots got rejected) jitter them by up to half the spacing
+public abstract class SequenceCandidates implements CandidateGenerator {
+
+    protected final int slots;
+    protected final double spacing;
+
+    protected SequenceCandidates(int slots, double spacing) {
+        this.slots = Math.max(1, slots);
+        this.spacing = spacing;
+    }
+
+    // writes the x/z of the slot into the first two elements of out
+    protected abstract void slot(int slot, double[] out);
+
+    // how far the first pass over the slots is moved around
+    protected double getFirstPassJitter() {
+        return 0;
+    }
+
+    @Override
+    public void generate(long index, Random random, double[] xs, double[] zs) {
+        double[] point = new double[2];
+
+        long candidate;
+        double jitter;
+        for (int i = 0; i < xs.length; i++) {
+            candidate = index + i;
+            slot((int) (candidate % slots), point);
+
+            jitter = candidate < slots ? getFirstPassJitter() : spacing / 2;
+
+            xs[i] = point[0] + (random.nextDouble() * 2 - 1) * jitter;
+            zs[i] = point[1] + (random.nextDouble() * 2 - 1) * jitter;
+        }
+    }
+
+    // shuffles 0 until size so slots aren't always handed out in the same order
+    protected static int[] shuffledOrder(int size, long seed) {
+        Random random = new SplitMixRandom(seed);
+
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+
+        int swap, temp;
+        for (int i = size - 1; i > 0; i--) {
+            swap = random.nextInt(i + 1);
+            temp = order[i];
+            order[i] = order[swap];
+            order[swap] = temp;
+        }
+
+        return order;
+    }
+}
@@ -0,0 +1,137 @@
+package gg.uhc.scatterer.search;
+
+import com.google.common.base.Preconditions;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.World;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Snapshots of the chunks a search's candidates land in so the block checks can run on the
+// worker threads. Workers ask for the chunks they need, the server thread captures at most
+// perTick of them each tick and wakes the workers up. Chunks that had to be loaded for a
+// snapshot are asked to unload straight away, everything needed is in the snapshot.
+//
+// Holds at most maxSnapshots snapshots, the least recently used are dropped first. A worker
+// that finds its chunk dropped before it got to it just asks for it again
+public class SnapshotStore {
+
+    protected final World world;
+    protected final int perTick;
+
+    // only used while synchronized on itself
+    protected final Map<Long, ChunkSnapshot> snapshots;
+
+    protected final Set<Long> requested = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+    protected final Queue<Long> queue = new ConcurrentLinkedQueue<Long>();
+    protected final Object captureLock = new Object();
+
+    // server thread only
+    protected long captured = 0;
+    protected long loaded = 0;
+
+    public SnapshotStore(World world, int perTick, final int maxSnapshots) {
+        Preconditions.checkArgument(perTick > 0);
+        Preconditions.checkArgument(maxSnapshots > 0);
+        this.world = world;
+        this.perTick = perTick;
+
+        snapshots = new LinkedHashMap<Long, ChunkSnapshot>(16, .75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, ChunkSnapshot> eldest) {
+                return size() > maxSnapshots;
+            }
+        };
+    }
+
+    protected static long key(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    // null if it hasn't been captured yet, it's asked for and will be there after a later capture
+    public ChunkSnapshot get(int chunkX, int chunkZ) {
+        long key = key(chunkX, chunkZ);
+        ChunkSnapshot snapshot;
+
+        synchronized (snapshots) {
+            snapshot = snapshots.get(key);
+        }
+
+        if (snapshot == null && requested.add(key)) {
+            queue.add(key);
+        }
+
+        return snapshot;
+    }
+
+    // blocks the worker until the next capture or the timeout
+    public void awaitCapture(long millis) throws InterruptedException {
+        synchronized (captureLock) {
+            captureLock.wait(millis);
+        }
+    }
+
+    // server thread only, captures up to perTick of the asked for chunks
+    public int capture() {
+        Long key;
+        int chunkX, chunkZ;
+        boolean wasLoaded;
+        ChunkSnapshot snapshot;
+
+        int count = 0;
+        while (count < perTick && (key = queue.poll()) != null) {
+            chunkX = (int) (key >> 32);
+            chunkZ = (int) key.longValue();
+            wasLoaded = world.isChunkLoaded(chunkX, chunkZ);
+
+            // heights and biomes, temperature and rainfall aren't needed
+            snapshot = world.getChunkAt(chunkX, chunkZ).getChunkSnapshot(true, true, false);
+
+            synchronized (snapshots) {
+                snapshots.put(key, snapshot);
+            }
+
+            // after it's stored, a worker asking in between just finds it
+            requested.remove(key);
+
+            if (!wasLoaded) {
+                loaded++;
+                world.unloadChunkRequest(chunkX, chunkZ);
+            }
+
+            count++;
+        }
+
+        captured += count;
+
+        if (count > 0) {
+            synchronized (captureLock) {
+                captureLock.notifyAll();
+            }
+        }
+
+        return count;
+    }
+
+    public void clear() {
+        synchronized (snapshots) {
+            snapshots.clear();
+        }
+
+        queue.clear();
+        requested.clear();
+    }
+
+    public long getCaptured() {
+        return captured;
+    }
+
+    public long getLoaded() {
+        return loaded;
+    }
+}
@@ -0,0 +1,238 @@
+package gg.uhc.scatterer.search;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.bukkit.Location;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+// Picks count locations out of a larger set of already validated ones so the closest two are
+// as far apart as possible. Starts from a farthest point first pick then keeps moving whichever
+// location is closest to another to the spare location furthest from the rest, until nothing
+// improves or the time runs out. Only ever uses the given locations so every pick is still safe
+public class SpacingOptimiser {
+
+    protected final List<Location> candidates;
+    protected final double[] xs;
+    protected final double[] zs;
+    protected final int count;
+
+    // indexes into the candidates of the picked locations
+    protected final int[] picked;
+    protected final boolean[] used;
+
+    public SpacingOptimiser(List<Location> candidates, int count) {
+        Preconditions.checkArgument(count > 0);
+        Preconditions.checkArgument(candidates.size() >= count);
+        this.candidates = candidates;
+        this.count = count;
+
+        xs = new double[candidates.size()];
+        zs = new double[candidates.size()];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = candidates.get(i).getX();
+            zs[i] = candidates.get(i).getZ();
+        }
+
+        picked = new int[count];
+        used = new boolean[xs.length];
+    }
+
+    // runs the optimiser on the executor once the candidates are found, fails if the best spacing is under minDistance.
+    // Up to spares more are added after the picks from what's left over, too few of them never fails
+    public static ListenableFuture<List<Location>> optimiseWhenFound(final ListenableFuture<List<Location>> candidates, final int count, final int spares, final double minDistance, final Random random, final long budgetNanos, Executor executor) {
+        final SettableFuture<List<Location>> result = SettableFuture.create();
+
+        candidates.addListener(new Runnable() {
+            @Override
+            public void run() {
+                if (result.isCancelled()) return;
+
+                try {
+                    // only the locations that will be used are spaced out and checked against minDistance
+                    SpacingOptimiser optimiser = new SpacingOptimiser(candidates.get(), count);
+                    optimiser.optimise(random, budgetNanos);
+
+                    if (optimiser.getMinDistance() < minDistance) {
+                        result.setException(new LocationSearchException(String.format("Best spacing found was %.1f blocks, less than the minimum radius", optimiser.getMinDistance())));
+                        return;
+                    }
+
+                    List<Location> picked = Lists.newArrayList(optimiser.getPicked());
+                    picked.addAll(optimiser.getSpares(spares, minDistance));
+                    result.set(ImmutableList.copyOf(picked));
+                } catch (CancellationException e) {
+                    result.cancel(false);
+                } catch (ExecutionException e) {
+                    result.setException(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    result.cancel(false);
+                }
+            }
+        }, executor);
+
+        // cancelling the result stops the search too
+        result.addListener(new Runnable() {
+            @Override
+            public void run() {
+                if (result.isCancelled()) {
+                    candidates.cancel(false);
+                }
+            }
+        }, executor);
+
+        return result;
+    }
+
+    public void optimise(Random random, long budgetNanos) {
+        long deadline = System.nanoTime() + budgetNanos;
+
+        pickFarthest(random);
+
+        while (System.nanoTime() < deadline) {
+            if (!improve()) return;
+        }
+    }
+
+    // greedy start, each pick is the candidate furthest from everything picked so far
+    protected void pickFarthest(Random random) {
+        double[] nearest = new double[xs.length];
+
+        int next = random.nextInt(xs.length);
+        for (int p = 0; p < count; p++) {
+            picked[p] = next;
+            used[next] = true;
+
+            double best = -1;
+            for (int i = 0; i < xs.length; i++) {
+                if (used[i]) continue;
+
+                double distance = distanceSquared(i, next);
+                if (p == 0 || distance < nearest[i]) nearest[i] = distance;
+
+                if (nearest[i] > best) {
+                    best = nearest[i];
+                    next = i;
+                }
+            }
+        }
+    }
+
+    // moves one of the closest two picks if that makes them further apart, false if neither can move
+    protected boolean improve() {
+        if (count < 2) return false;
+
+        int first = -1, second = -1;
+        double closest = Double.MAX_VALUE;
+        double distance;
+        for (int a = 0; a < count; a++) {
+            for (int b = a + 1; b < count; b++) {
+                distance = distanceSquared(picked[a], picked[b]);
+
+                if (distance < closest) {
+                    closest = distance;
+                    first = a;
+                    second = b;
+                }
+            }
+        }
+
+        return relocate(first, closest) || relocate(second, closest);
+    }
+
+    // swaps the pick for the spare candidate furthest from every other pick if that beats the current closest
+    protected boolean relocate(int pick, double closest) {
+        int best = -1;
+        double bestDistance = closest;
+        double nearest;
+        for (int i = 0; i < xs.length; i++) {
+            if (used[i]) continue;
+
+            nearest = Double.MAX_VALUE;
+            for (int p = 0; p < count && nearest > bestDistance; p++) {
+                if (p != pick) nearest = Math.min(nearest, distanceSquared(i, picked[p]));
+            }
+
+            if (nearest > bestDistance) {
+                bestDistance = nearest;
+                best = i;
+            }
+        }
+
+        if (best < 0) return false;
+
+        used[picked[pick]] = false;
+        used[best] = true;
+        picked[pick] = best;
+        return true;
+    }
+
+    protected double distanceSquared(int a, int b) {
+        double x = xs[a] - xs[b];
+        double z = zs[a] - zs[b];
+        return x * x + z * z;
+    }
+
+    public double getMinDistance() {
+        if (count < 2) return Double.MAX_VALUE;
+
+        double closest = Double.MAX_VALUE;
+        for (int a = 0; a < count; a++) {
+            for (int b = a + 1; b < count; b++) {
+                closest = Math.min(closest, distanceSquared(picked[a], picked[b]));
+            }
+        }
+
+        return Math.sqrt(closest);
+    }
+
+    public List<Location> getPicked() {
+        List<Location> locations = Lists.newArrayListWithCapacity(count);
+
+        for (int index : picked) {
+            locations.add(candidates.get(index));
+        }
+
+        return ImmutableList.copyOf(locations);
+    }
+
+    // first come first served from the candidates that weren't picked, skipping any within minDistance
+    // of a pick or an earlier spare
+    public List<Location> getSpares(int max, double minDistance) {
+        double minSquared = minDistance * minDistance;
+        List<Integer> spares = Lists.newArrayList();
+
+        for (int i = 0; i < xs.length && spares.size() < max; i++) {
+            if (used[i] || !isClear(i, spares, minSquared)) continue;
+
+            spares.add(i);
+        }
+
+        List<Location> locations = Lists.newArrayListWithCapacity(spares.size());
+        for (int index : spares) {
+            locations.add(candidates.get(index));
+        }
+
+        return ImmutableList.copyOf(locations);
+    }
+
+    protected boolean isClear(int candidate, List<Integer> spares, double minSquared) {
+        for (int pick : picked) {
+            if (distanceSquared(candidate, pick) < minSquared) return false;
+        }
+
+        for (int spare : spares) {
+            if (distanceSquared(candidate, spare) < minSquared) return false;
+        }
+
+        return true;
+    }
+}
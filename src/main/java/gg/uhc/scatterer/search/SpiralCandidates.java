@@ -0,0 +1,28 @@
+package gg.uhc.scatterer.search;
+
+// Fibonacci/sunflower spiral, count points spread evenly over a circle
+public class SpiralCandidates extends SequenceCandidates {
+
+    protected static final double GOLDEN_ANGLE = Math.PI * (3 - Math.sqrt(5));
+
+    protected final double centreX;
+    protected final double centreZ;
+    protected final double radius;
+
+    public SpiralCandidates(double centreX, double centreZ, double radius, int count) {
+        // each point gets roughly an equal share of the circle's area
+        super(count, radius * Math.sqrt(Math.PI / Math.max(1, count)));
+        this.centreX = centreX;
+        this.centreZ = centreZ;
+        this.radius = radius;
+    }
+
+    @Override
+    protected void slot(int slot, double[] out) {
+        double distance = radius * Math.sqrt((slot + .5D) / slots);
+        double angle = slot * GOLDEN_ANGLE;
+
+        out[0] = centreX + distance * Math.cos(angle);
+        out[1] = centreZ + distance * Math.sin(angle);
+    }
+}
@@ -0,0 +1,50 @@
+package gg.uhc.scatterer.search;
+
+import java.util.Random;
+
+// SplitMix64 generator, unlike java.util.Random it has no shared atomic state so each
+// thread can own one. forStream gives independent, reproducible streams from a single seed
+public class SplitMixRandom extends Random {
+
+    protected static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    protected long state;
+
+    public SplitMixRandom(long seed) {
+        super(seed);
+        this.state = seed;
+    }
+
+    // stream number index of the given seed, the same pair always gives the same numbers
+    public static SplitMixRandom forStream(long seed, long index) {
+        return new SplitMixRandom(mix(seed + mix(index * GOLDEN_GAMMA)));
+    }
+
+    public static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        // called by the Random constructor before our fields are set up
+        this.state = seed;
+    }
+
+    @Override
+    public long nextLong() {
+        state += GOLDEN_GAMMA;
+        return mix(state);
+    }
+
+    @Override
+    protected int next(int bits) {
+        return (int) (nextLong() >>> (64 - bits));
+    }
+
+    @Override
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+}
@@ -0,0 +1,49 @@
+package gg.uhc.scatterer.teleportation;
+
+import org.bukkit.World;
+
+public class ChunkCoord {
+
+    protected final World world;
+    protected final int x;
+    protected final int z;
+
+    public ChunkCoord(World world, int x, int z) {
+        this.world = world;
+        this.x = x;
+        this.z = z;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getZ() {
+        return z;
+    }
+
+    public boolean isLoaded() {
+        return world.isChunkLoaded(x, z);
+    }
+
+    public void load() {
+        world.loadChunk(x, z, true);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (!(object instanceof ChunkCoord)) return false;
+
+        ChunkCoord other = (ChunkCoord) object;
+        return other.x == x && other.z == z && other.world.equals(world);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * world.hashCode() + x) + z;
+    }
+}
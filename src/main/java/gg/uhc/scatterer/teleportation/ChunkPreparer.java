@@ -1,49 +1,154 @@
 package gg.uhc.scatterer.teleportation;
 
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import org.bukkit.Bukkit;
-import org.bukkit.Chunk;
 import org.bukkit.Location;
-import org.bukkit.World;
-import org.bukkit.event.EventHandler;
-import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitRunnable;
 
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class ChunkPreparer {
 
     protected static final int DISTANCE = Bukkit.getViewDistance();
 
-    protected boolean stoppingChunkUnload = false;
+    protected final Plugin plugin;
+    protected final ChunkRetention retention;
+    protected final int chunksPerTick;
 
-    public void stopChunkUnload(boolean stop) {
-        this.stoppingChunkUnload = stop;
+    // chunks waiting to be loaded in the order they were requested along with
+    // every set waiting on them, sets sharing a chunk only load it once
+    protected final LinkedHashMap<ChunkCoord, List<PreparedChunks>> queue = Maps.newLinkedHashMap();
+
+    protected BukkitRunnable loadTask = null;
+    public ChunkPreparer(Plugin plugin, ChunkRetention retention, int chunksPerTick) {
+        Preconditions.checkArgument(chunksPerTick > 0);
+        this.plugin = plugin;
+        this.retention = retention;
+        this.chunksPerTick = chunksPerTick;
     }
 
-    public void prepareLocations(Collection<Location> locations) {
-        Chunk chunk;
-        World world;
-        int startX, endX, startZ, endZ, x, z;
-        for (Location location : locations) {
-            chunk = location.getChunk();
-            world = chunk.getWorld();
+    public int getPinnedCount() {
+        return retention.getPinnedCount();
+    }
+
+    public PreparedChunks prepare(Collection<Location> locations) {
+        Set<ChunkCoord> around = getChunksAround(locations);
+        PreparedChunks prepared = new PreparedChunks(locations, around);
+
+        // kept loaded from now until a little after the set is teleported
+        retention.pin(around);
+
+        List<PreparedChunks> waiting;
+        for (ChunkCoord coord : around) {
+            if (coord.isLoaded()) {
+                prepared.alreadyLoaded++;
+                continue;
+            }
+
+            waiting = queue.get(coord);
+
+            if (waiting == null) {
+                waiting = Lists.newArrayListWithCapacity(1);
+                queue.put(coord, waiting);
+            }
+
+            waiting.add(prepared);
+            prepared.pending++;
+        }
+
+        if (!queue.isEmpty() && loadTask == null) {
+            loadTask = new LoadTask();
+            loadTask.runTaskTimer(plugin, 0, 1);
+        }
+
+        return prepared;
+    }
+
+    public void cancel(PreparedChunks prepared) {
+        retention.unpin(prepared.getChunks());
+
+        Iterator<Map.Entry<ChunkCoord, List<PreparedChunks>>> iterator = queue.entrySet().iterator();
+
+        List<PreparedChunks> waiting;
+        while (iterator.hasNext()) {
+            waiting = iterator.next().getValue();
 
-            startX = chunk.getX() - DISTANCE;
-            endX = chunk.getX() + DISTANCE;
-            startZ = chunk.getZ() - DISTANCE;
-            endZ = chunk.getZ() + DISTANCE;
+            // leave chunks other sets still want
+            if (waiting.remove(prepared) && waiting.isEmpty()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    protected Set<ChunkCoord> getChunksAround(Collection<Location> locations) {
+        Set<ChunkCoord> coords = Sets.newHashSet();
+
+        int chunkX, chunkZ, x, z;
+        for (Location location : locations) {
+            // don't use Location#getChunk, it would load the chunk right now
+            chunkX = location.getBlockX() >> 4;
+            chunkZ = location.getBlockZ() >> 4;
 
-            for (x = startX; x <= endX; x++) {
-                for (z = startZ; z < endZ; z++) {
-                    world.loadChunk(x, z, true);
+            for (x = chunkX - DISTANCE; x <= chunkX + DISTANCE; x++) {
+                for (z = chunkZ - DISTANCE; z <= chunkZ + DISTANCE; z++) {
+                    coords.add(new ChunkCoord(location.getWorld(), x, z));
                 }
             }
         }
+
+        return coords;
     }
 
-    @EventHandler
-    public void on(ChunkUnloadEvent event) {
-        if (!stoppingChunkUnload) return;
+    // call once the set has been teleported
+    public void release(PreparedChunks prepared) {
+        retention.unpinLater(prepared.getChunks());
+    }
+
+    class LoadTask extends BukkitRunnable {
+        @Override
+        public void run() {
+            Iterator<Map.Entry<ChunkCoord, List<PreparedChunks>>> iterator = queue.entrySet().iterator();
+
+            Map.Entry<ChunkCoord, List<PreparedChunks>> entry;
+            long start, share;
+            int budget = chunksPerTick;
+            while (budget > 0 && iterator.hasNext()) {
+                entry = iterator.next();
+                iterator.remove();
 
-        event.setCancelled(true);
+                start = System.nanoTime();
+
+                // may have been loaded by something else since it was queued
+                if (!entry.getKey().isLoaded()) {
+                    entry.getKey().load();
+                    retention.markLoaded(entry.getKey());
+                    entry.getValue().get(0).loaded++;
+                    budget--;
+                } else {
+                    entry.getValue().get(0).alreadyLoaded++;
+                }
+
+                share = (System.nanoTime() - start) / entry.getValue().size();
+
+                for (PreparedChunks prepared : entry.getValue()) {
+                    prepared.pending--;
+                    prepared.loadNanos += share;
+                }
+            }
+
+            if (queue.isEmpty()) {
+                cancel();
+                loadTask = null;
+            }
+        }
     }
 }
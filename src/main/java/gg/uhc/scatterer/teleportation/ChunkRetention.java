@@ -0,0 +1,154 @@
+package gg.uhc.scatterer.teleportation;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.bukkit.Chunk;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+
+// Keeps the chunks prepared for a teleport set loaded until shortly after the set arrives.
+// Chunks are counted per set wanting them, only pinned chunks have their unloads cancelled
+// and they're released a fixed number of ticks after the teleport so the held count stays
+// at the sets being prepared plus the last few teleported
+public class ChunkRetention implements Listener {
+
+    static class Release {
+        protected final long tick;
+        protected final Collection<ChunkCoord> chunks;
+
+        Release(long tick, Collection<ChunkCoord> chunks) {
+            this.tick = tick;
+            this.chunks = chunks;
+        }
+    }
+
+    protected final Plugin plugin;
+    protected final int holdTicks;
+
+    // how many sets want each chunk
+    protected final Map<ChunkCoord, Integer> pinned = Maps.newHashMap();
+
+    // pinned chunks the preparer had to load itself, the only ones asked to unload once released
+    protected final Set<ChunkCoord> loadedForScatter = Sets.newHashSet();
+
+    // always in tick order, every release waits the same number of ticks
+    protected final LinkedList<Release> releases = Lists.newLinkedList();
+
+    protected BukkitRunnable releaseTask = null;
+    protected long tick = 0;
+
+    public ChunkRetention(Plugin plugin, int holdTicks) {
+        Preconditions.checkArgument(holdTicks >= 0);
+        this.plugin = plugin;
+        this.holdTicks = holdTicks;
+    }
+
+    public int getPinnedCount() {
+        return pinned.size();
+    }
+
+    public boolean isPinned(ChunkCoord coord) {
+        return pinned.containsKey(coord);
+    }
+
+    // the preparer loaded this pinned chunk, it wasn't loaded for anything else
+    public void markLoaded(ChunkCoord coord) {
+        if (pinned.containsKey(coord)) {
+            loadedForScatter.add(coord);
+        }
+    }
+
+    public void pin(Collection<ChunkCoord> chunks) {
+        Integer count;
+        for (ChunkCoord coord : chunks) {
+            count = pinned.get(coord);
+            pinned.put(coord, count == null ? 1 : count + 1);
+        }
+    }
+
+    public void unpin(Collection<ChunkCoord> chunks) {
+        Integer count;
+        for (ChunkCoord coord : chunks) {
+            count = pinned.get(coord);
+
+            if (count == null) continue;
+
+            if (count > 1) {
+                pinned.put(coord, count - 1);
+                continue;
+            }
+
+            pinned.remove(coord);
+
+            // ask the server to unload it if nobody is near it, chunks that were already loaded
+            // (spawn, around players, other plugins) are left as they were
+            if (loadedForScatter.remove(coord) && coord.isLoaded()) {
+                coord.getWorld().unloadChunkRequest(coord.getX(), coord.getZ(), true);
+            }
+        }
+    }
+
+    // unpins after the hold time, gives players time to arrive before the chunks can go
+    public void unpinLater(Collection<ChunkCoord> chunks) {
+        if (holdTicks == 0) {
+            unpin(chunks);
+            return;
+        }
+
+        releases.add(new Release(tick + holdTicks, chunks));
+
+        if (releaseTask == null) {
+            releaseTask = new ReleaseTask();
+            releaseTask.runTaskTimer(plugin, 1, 1);
+        }
+    }
+
+    // releases everything waiting on the hold time straight away
+    public void releaseAll() {
+        for (Release release : releases) {
+            unpin(release.chunks);
+        }
+        releases.clear();
+
+        if (releaseTask != null) {
+            releaseTask.cancel();
+            releaseTask = null;
+        }
+    }
+
+    @EventHandler(ignoreCancelled = true)
+    public void on(ChunkUnloadEvent event) {
+        if (pinned.isEmpty()) return;
+
+        Chunk chunk = event.getChunk();
+        if (isPinned(new ChunkCoord(chunk.getWorld(), chunk.getX(), chunk.getZ()))) {
+            event.setCancelled(true);
+        }
+    }
+
+    class ReleaseTask extends BukkitRunnable {
+        @Override
+        public void run() {
+            tick++;
+
+            while (!releases.isEmpty() && releases.peek().tick <= tick) {
+                unpin(releases.pop().chunks);
+            }
+
+            if (releases.isEmpty()) {
+                cancel();
+                releaseTask = null;
+            }
+        }
+    }
+}
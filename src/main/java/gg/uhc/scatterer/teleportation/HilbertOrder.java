@@ -0,0 +1,88 @@
+package gg.uhc.scatterer.teleportation;
+
+import com.google.common.primitives.Longs;
+import org.bukkit.Location;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+// Orders locations along a Hilbert curve over their chunk coordinates, locations next to each
+// other in the order are close together on the map. Sets are cut from the front of the order
+// so each set's view distance squares overlap each other and the set before, chunks loaded or
+// still held for one set are used again by the next instead of loading a new square each time
+public class HilbertOrder {
+
+    // indexes into the locations in curve order
+    public static int[] order(List<Location> locations) {
+        int[] chunkXs = new int[locations.size()];
+        int[] chunkZs = new int[locations.size()];
+        for (int i = 0; i < chunkXs.length; i++) {
+            chunkXs[i] = locations.get(i).getBlockX() >> 4;
+            chunkZs[i] = locations.get(i).getBlockZ() >> 4;
+        }
+
+        return order(chunkXs, chunkZs);
+    }
+
+    // indexes into the chunk coordinates in curve order, the same chunk more than once stays together
+    public static int[] order(int[] chunkXs, int[] chunkZs) {
+        int count = chunkXs.length;
+
+        int minX = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            minX = Math.min(minX, chunkXs[i]);
+            minZ = Math.min(minZ, chunkZs[i]);
+            maxX = Math.max(maxX, chunkXs[i]);
+            maxZ = Math.max(maxZ, chunkZs[i]);
+        }
+
+        // smallest power of two side that covers every chunk
+        int side = Integer.highestOneBit(Math.max(Math.max(maxX - minX, maxZ - minZ), 1)) << 1;
+
+        final long[] keys = new long[count];
+        Integer[] indexes = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = index(side, chunkXs[i] - minX, chunkZs[i] - minZ);
+            indexes[i] = i;
+        }
+
+        // stable so locations in the same chunk keep the order they were found in
+        Arrays.sort(indexes, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Longs.compare(keys[a], keys[b]);
+            }
+        });
+
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = indexes[i];
+        }
+        return order;
+    }
+
+    // distance along the curve filling a side x side square, x and z from 0 to side - 1
+    protected static long index(int side, int x, int z) {
+        long index = 0;
+        int rx, rz, swap;
+        for (int s = side >> 1; s > 0; s >>= 1) {
+            rx = (x & s) > 0 ? 1 : 0;
+            rz = (z & s) > 0 ? 1 : 0;
+            index += (long) s * s * ((3 * rx) ^ rz);
+
+            // rotate the quadrant so the curve inside it joins up with the next one
+            if (rz == 0) {
+                if (rx == 1) {
+                    x = side - 1 - x;
+                    z = side - 1 - z;
+                }
+
+                swap = x;
+                x = z;
+                z = swap;
+            }
+        }
+        return index;
+    }
+}
@@ -0,0 +1,89 @@
+package gg.uhc.scatterer.teleportation;
+
+import com.google.common.base.Optional;
+import gg.uhc.scatterer.search.MaterialTable;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+
+// Checks a landing spot again right before its set is teleported. Blocks can change between
+// the search and the teleport (or since a pool was made) so the column is read again, moved to
+// its current surface and if that's no good the nearest safe column close by is used instead.
+// Columns have to pass the same material rules as the search as well as having room to stand.
+// The set's chunks are loaded by then, columns in chunks that aren't loaded are never read
+public class LandingCheck {
+
+    // how many blocks away from the original column to look for a safe one
+    protected static final int NUDGE_RADIUS = 2;
+    // blocks above the top block that have to be free, the gap the player is dropped into then their feet and head
+    protected static final int CLEARANCE = 3;
+
+    // absent if nowhere close by is safe, otherwise the top block to land above
+    public static Optional<Location> settle(Location location, Optional<MaterialTable> materials) {
+        World world = location.getWorld();
+        int x = location.getBlockX();
+        int z = location.getBlockZ();
+
+        Optional<Location> safe = check(world, x, z, materials);
+
+        if (safe.isPresent()) return safe;
+
+        // closest rings first
+        for (int radius = 1; radius <= NUDGE_RADIUS; radius++) {
+            for (int dx = -radius; dx <= radius; dx++) {
+                for (int dz = -radius; dz <= radius; dz++) {
+                    if (Math.max(Math.abs(dx), Math.abs(dz)) != radius) continue;
+
+                    safe = check(world, x + dx, z + dz, materials);
+
+                    if (safe.isPresent()) return safe;
+                }
+            }
+        }
+
+        return Optional.absent();
+    }
+
+    @SuppressWarnings("deprecation")
+    protected static Optional<Location> check(World world, int x, int z, Optional<MaterialTable> materials) {
+        if (!world.isChunkLoaded(x >> 4, z >> 4)) return Optional.absent();
+
+        int y = world.getHighestBlockYAt(x, z) - 1;
+
+        if (y < 0) return Optional.absent();
+
+        Material top = Material.getMaterial(world.getBlockTypeIdAt(x, y, z));
+
+        if (top == null || isDangerous(top) || top == Material.AIR) return Optional.absent();
+
+        Material above;
+        // same rules as the search, a nudge mustn't land anyone on water or a block the config rejects
+        if (materials.isPresent()) {
+            above = Material.getMaterial(world.getBlockTypeIdAt(x, y + 1, z));
+            Material below = y > 0 ? Material.getMaterial(world.getBlockTypeIdAt(x, y - 1, z)) : Material.AIR;
+
+            if (!materials.get().isSafe(top, above, below)) return Optional.absent();
+        }
+
+        for (int i = 1; i <= CLEARANCE; i++) {
+            above = Material.getMaterial(world.getBlockTypeIdAt(x, y + i, z));
+
+            if (above == null || above.isSolid() || isDangerous(above)) return Optional.absent();
+        }
+
+        return Optional.of(new Location(world, x + .5D, y, z + .5D));
+    }
+
+    public static boolean isDangerous(Material material) {
+        switch (material) {
+            case LAVA:
+            case STATIONARY_LAVA:
+            case FIRE:
+            case CACTUS:
+            case WEB:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
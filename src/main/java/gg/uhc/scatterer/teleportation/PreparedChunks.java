@@ -0,0 +1,56 @@
+package gg.uhc.scatterer.teleportation;
+
+import org.bukkit.Location;
+
+import java.util.Collection;
+import java.util.Set;
+
+public class PreparedChunks {
+
+    protected final Collection<Location> locations;
+    // every chunk in view distance of the locations
+    protected final Set<ChunkCoord> chunks;
+
+    // chunks that still need loading before the set can be teleported
+    protected int pending = 0;
+
+    // time spent loading chunks for this set, shared chunks split the time between sets
+    protected long loadNanos = 0;
+
+    // chunks loaded for this set, a chunk shared with an earlier set counts for that set
+    protected int loaded = 0;
+    protected int alreadyLoaded = 0;
+
+    PreparedChunks(Collection<Location> locations, Set<ChunkCoord> chunks) {
+        this.locations = locations;
+        this.chunks = chunks;
+    }
+
+    public Collection<Location> getLocations() {
+        return locations;
+    }
+
+    public Set<ChunkCoord> getChunks() {
+        return chunks;
+    }
+
+    public int getPending() {
+        return pending;
+    }
+
+    public long getLoadNanos() {
+        return loadNanos;
+    }
+
+    public int getLoaded() {
+        return loaded;
+    }
+
+    public int getAlreadyLoaded() {
+        return alreadyLoaded;
+    }
+
+    public boolean isReady() {
+        return pending == 0;
+    }
+}
@@ -0,0 +1,415 @@
+package gg.uhc.scatterer.teleportation;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import gg.uhc.scatterer.Scatterable;
+import gg.uhc.scatterer.journal.ScatterJournal;
+import gg.uhc.scatterer.metrics.ScatterMetrics;
+import gg.uhc.scatterer.scheduling.AdaptiveSchedule;
+import gg.uhc.scatterer.search.ColumnCache;
+import gg.uhc.scatterer.search.MaterialTable;
+import gg.uhc.scatterer.scheduling.TickMonitor;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
+
+// A single scatter run by the teleporter. Has its own locations, sets and timing, the
+// teleporter ticks every running job and shares the teleports allowed per tick between them
+public class ScatterJob {
+
+    protected final World world;
+    protected final ChunkPreparer chunkPreparer;
+    protected final TickMonitor tickMonitor;
+    protected final Teleporter.Callback callback;
+    protected final ScatterMetrics metrics;
+    protected final int chunkSize;
+    protected final int ticksPer;
+    protected final int lookahead;
+    protected final Optional<AdaptiveSchedule> schedule;
+
+    // set while the locations are still being searched for
+    protected Optional<ListenableFuture<List<Location>>> pendingLocations = Optional.absent();
+    protected Optional<ScatterJournal> journal = Optional.absent();
+    // false while a streamed search can still offer more locations
+    protected boolean streamEnded = true;
+
+    // not yet assigned to a set
+    protected LinkedList<Location> locations;
+    protected LinkedList<Scatterable> scatterables;
+
+    // spare locations found along with the rest, used when a landing spot is no longer safe
+    protected LinkedList<Location> reserve;
+
+    // sets having their chunks loaded, head is the next set to teleport
+    protected LinkedList<TeleportSet> preparing;
+
+    // team members still to follow the first of their team, only used when staggering
+    protected final LinkedList<Player> waitingPlayers = Lists.newLinkedList();
+    protected final LinkedList<Location> waitingLocations = Lists.newLinkedList();
+    // 0 moves every member of a team in the same tick
+    protected int membersPerTick = 0;
+    // rules landing spots are checked against again, absent when any block is allowed
+    protected Optional<MaterialTable> materials = Optional.absent();
+    // cache the locations may have been checked against, columns that turn out different are dropped from it
+    protected Optional<ColumnCache> columns = Optional.absent();
+
+    // keep track of how many are done compared to total
+    protected int completed = 0;
+    protected int total = 0;
+
+    protected int wait = 0;
+    // ticks the head set was due but still waiting on chunks or the shared budget
+    protected int stalled = 0;
+
+    // how far through the head set, more than the tick's budget goes over several ticks
+    protected int setProgress = 0;
+    protected int setTeleported = 0;
+    protected long setNanos = 0;
+    protected int setMoved = 0;
+    protected int setReplaced = 0;
+    protected int setUnsafe = 0;
+
+    ScatterJob(World world, ChunkPreparer chunkPreparer, TickMonitor tickMonitor, Teleporter.Callback callback, ScatterMetrics metrics, int chunkSize, int ticksPer, int lookahead, Optional<AdaptiveSchedule> schedule) {
+        this.world = world;
+        this.chunkPreparer = chunkPreparer;
+        this.tickMonitor = tickMonitor;
+        this.callback = callback;
+        this.metrics = metrics;
+        this.chunkSize = chunkSize;
+        this.ticksPer = ticksPer;
+        this.lookahead = lookahead;
+        this.schedule = schedule;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    public int getCompleted() {
+        return completed;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    // spreads each team over the following ticks, at most this many of the waiting members per tick
+    public void setStaggeredMembers(int membersPerTick) {
+        this.membersPerTick = membersPerTick;
+    }
+
+    public void setMaterials(MaterialTable materials) {
+        this.materials = Optional.of(materials);
+    }
+
+    public void setColumnCache(ColumnCache columns) {
+        this.columns = Optional.of(columns);
+    }
+
+    public boolean isRunning() {
+        return preparing != null;
+    }
+
+    void start(List<Location> locations, List<Scatterable> scatterables, Optional<ScatterJournal> journal) {
+        pendingLocations = Optional.absent();
+        total = scatterables.size();
+        this.journal = journal;
+
+        // tick times before anything is loaded or teleported to compare the scatter against
+        metrics.startTeleporting(tickMonitor.getAverageTickMillis());
+
+        // anything past the last scatterable is spare
+        this.locations = Lists.newLinkedList(locations.subList(0, Math.min(locations.size(), scatterables.size())));
+        this.scatterables = Lists.newLinkedList(scatterables);
+        this.reserve = Lists.newLinkedList(locations.subList(this.locations.size(), locations.size()));
+
+        // start loading chunks for the first set and the ones after it
+        preparing = Lists.newLinkedList();
+        fillSets();
+    }
+
+    // adds a location found by a streamed search, paired with the next scatterable without one
+    public void offer(Location location) {
+        if (locations == null) return;
+
+        if (locations.size() >= scatterables.size()) {
+            reserve.add(location);
+
+            if (journal.isPresent()) {
+                try {
+                    journal.get().recordSpare(location);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    closeJournal();
+                }
+            }
+            return;
+        }
+
+        locations.add(location);
+
+        if (journal.isPresent()) {
+            try {
+                journal.get().recordAssignment(scatterables.get(locations.size() - 1), location);
+            } catch (IOException e) {
+                e.printStackTrace();
+                closeJournal();
+            }
+        }
+
+        fillSets();
+    }
+
+    // the search has found everything, the last set can be smaller than the set size
+    void endStream() {
+        streamEnded = true;
+
+        if (preparing != null) {
+            fillSets();
+        }
+    }
+
+    // releases everything still held, returns true if the job was running or searching
+    boolean stop() {
+        if (pendingLocations.isPresent()) {
+            // the teleporter's listener picks up the cancellation
+            pendingLocations.get().cancel(false);
+            return false;
+        }
+
+        if (preparing == null) return false;
+
+        for (TeleportSet set : preparing) {
+            chunkPreparer.cancel(set.getChunks());
+        }
+
+        locations = null;
+        scatterables = null;
+        reserve = null;
+        preparing = null;
+        waitingPlayers.clear();
+        waitingLocations.clear();
+
+        // finished or cancelled, either way there's nothing to resume
+        if (journal.isPresent()) {
+            journal.get().delete();
+            journal = Optional.absent();
+        }
+        return true;
+    }
+
+    // leaves the journal behind so the scatter can be resumed
+    void closeJournal() {
+        if (journal.isPresent()) {
+            journal.get().close();
+            journal = Optional.absent();
+        }
+    }
+
+    boolean isFinished() {
+        return preparing != null && preparing.isEmpty() && locations.isEmpty() && streamEnded && waitingPlayers.isEmpty();
+    }
+
+    protected int getSetSize() {
+        return schedule.isPresent() ? schedule.get().getSize() : chunkSize;
+    }
+
+    protected int getDelay() {
+        return schedule.isPresent() ? schedule.get().getDelay() : ticksPer;
+    }
+
+    // keeps lookahead sets loading, while streaming only full sets are started
+    protected void fillSets() {
+        while (preparing.size() <= lookahead && !locations.isEmpty()) {
+            if (!streamEnded && locations.size() < getSetSize()) return;
+
+            prepareNextSet();
+        }
+    }
+
+    protected void prepareNextSet() {
+        int size = Math.min(getSetSize(), locations.size());
+
+        List<Location> setLocations = Lists.newArrayListWithCapacity(size);
+        List<Scatterable> setScatterables = Lists.newArrayListWithCapacity(size);
+        for (int i = 0; i < size; i++) {
+            setLocations.add(locations.pop());
+            setScatterables.add(scatterables.pop());
+        }
+
+        preparing.add(new TeleportSet(setLocations, setScatterables, chunkPreparer.prepare(setLocations)));
+    }
+
+    // next to be prepared, the new assignment replaces the old one in the journal
+    protected void requeue(Scatterable scatterable, Location location) {
+        locations.addFirst(location);
+        scatterables.addFirst(scatterable);
+
+        if (journal.isPresent()) {
+            try {
+                journal.get().recordAssignment(scatterable, location);
+            } catch (IOException e) {
+                e.printStackTrace();
+                closeJournal();
+            }
+        }
+    }
+
+    // the first member goes with the set, the rest are teleported to the same spot over the next ticks
+    protected void stagger(Scatterable scatterable, Location location) {
+        List<Player> players = scatterable.getPlayers();
+
+        if (players.isEmpty()) return;
+
+        players.get(0).teleport(location);
+
+        for (int i = 1; i < players.size(); i++) {
+            waitingPlayers.add(players.get(i));
+            waitingLocations.add(location);
+        }
+    }
+
+    // runs every tick, even between sets. Members come out of the shared budget like everyone
+    // else, returns how many were teleported
+    protected int teleportWaiting(int budget) {
+        int teleported = 0;
+        Player player;
+        Location location;
+        for (int i = 0; i < Math.min(membersPerTick, budget) && !waitingPlayers.isEmpty(); i++) {
+            player = waitingPlayers.pop();
+            location = waitingLocations.pop();
+
+            if (player.isOnline()) {
+                player.teleport(location);
+                teleported++;
+            }
+        }
+
+        return teleported;
+    }
+
+    // runs once per tick, returns how many were teleported out of the remaining budget
+    int tick(int budget) {
+        metrics.recordTick(tickMonitor.getAverageTickMillis(1));
+
+        // waiting members go first, they're already part of the way through being scattered
+        int members = teleportWaiting(budget);
+        budget -= members;
+
+        if (wait > 0) {
+            wait--;
+            return members;
+        }
+
+        // streamed searches may not have found enough for another set yet
+        if (preparing.isEmpty()) return members;
+
+        // wait until every chunk for the set is loaded and other jobs have left some budget
+        if (!preparing.peek().getChunks().isReady() || budget <= 0) {
+            stalled++;
+            return members;
+        }
+
+        long start = System.nanoTime();
+
+        // a set bigger than what's left of the budget is split over the following ticks
+        TeleportSet set = preparing.peek();
+        int first = setProgress;
+        int end = Math.min(set.size(), first + budget);
+        List<Location> loc = Lists.newArrayListWithCapacity(end - first);
+        List<Scatterable> scatter = Lists.newArrayListWithCapacity(end - first);
+
+        // check every spot again now its chunks are loaded, anyone without a safe one close by
+        // goes back in the queue with a spare location so its chunks are prepared like the rest
+        Optional<Location> safe;
+        Location planned;
+        for (int i = first; i < end; i++) {
+            planned = set.getLocations().get(i);
+            safe = LandingCheck.settle(planned, materials);
+
+            // the live read disagrees with what the search saw, a cached column is out of date
+            if (columns.isPresent() && (!safe.isPresent() || safe.get().getBlockY() != planned.getBlockY())) {
+                columns.get().invalidate(planned.getBlockX(), planned.getBlockZ());
+            }
+
+            if (safe.isPresent()) {
+                if (safe.get().getBlockX() != planned.getBlockX() || safe.get().getBlockY() != planned.getBlockY() || safe.get().getBlockZ() != planned.getBlockZ()) setMoved++;
+
+                loc.add(safe.get());
+                scatter.add(set.getScatterables().get(i));
+            } else if (!reserve.isEmpty()) {
+                setReplaced++;
+                requeue(set.getScatterables().get(i), reserve.pop());
+            } else {
+                // nothing better, same as before the check
+                setUnsafe++;
+                loc.add(planned);
+                scatter.add(set.getScatterables().get(i));
+            }
+        }
+
+        // teleport each, a staggered team still counts as one
+        for (int i = 0; i < loc.size(); i++) {
+            if (membersPerTick > 0) {
+                stagger(scatter.get(i), loc.get(i).add(0, 2, 0));
+            } else {
+                scatter.get(i).teleport(loc.get(i).add(0, 2, 0));
+            }
+        }
+
+        setProgress = end;
+        setTeleported += loc.size();
+        setNanos += System.nanoTime() - start;
+        completed += loc.size();
+
+        if (journal.isPresent()) {
+            try {
+                journal.get().recordDone(scatter);
+            } catch (IOException e) {
+                // carry on without it, the scatter matters more than being able to resume it
+                e.printStackTrace();
+                closeJournal();
+            }
+        }
+
+        callback.onSetTeleported(scatter, loc);
+        callback.onUpdate(completed, total);
+
+        // the rest of the set goes next tick, its chunks stay loaded until it's all done
+        if (setProgress < set.size()) return members + end - first;
+
+        preparing.pop();
+        PreparedChunks chunks = set.getChunks();
+
+        // players have arrived, the chunks can go once they've had time to settle
+        chunkPreparer.release(chunks);
+
+        // a set that all went back in the queue says nothing about how long teleports take
+        if (schedule.isPresent() && setTeleported > 0) {
+            schedule.get().onSetComplete(setTeleported, setNanos + chunks.getLoadNanos());
+        }
+
+        metrics.recordLandings(setMoved, setReplaced, setUnsafe);
+        metrics.recordSet(setTeleported, setNanos, chunks.getLoadNanos(), chunks.getLoaded(), chunks.getAlreadyLoaded(), stalled, chunkPreparer.getPinnedCount());
+        stalled = 0;
+        setProgress = 0;
+        setTeleported = 0;
+        setNanos = 0;
+        setMoved = 0;
+        setReplaced = 0;
+        setUnsafe = 0;
+
+        // start warming the next set that isn't already being prepared
+        fillSets();
+
+        // this tick counts as the first tick of the delay
+        wait = getDelay() - 1;
+
+        return members + end - first;
+    }
+}
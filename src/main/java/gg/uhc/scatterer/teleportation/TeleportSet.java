@@ -0,0 +1,35 @@
+package gg.uhc.scatterer.teleportation;
+
+import gg.uhc.scatterer.Scatterable;
+import org.bukkit.Location;
+
+import java.util.List;
+
+public class TeleportSet {
+
+    protected final List<Location> locations;
+    protected final List<Scatterable> scatterables;
+    protected final PreparedChunks chunks;
+
+    TeleportSet(List<Location> locations, List<Scatterable> scatterables, PreparedChunks chunks) {
+        this.locations = locations;
+        this.scatterables = scatterables;
+        this.chunks = chunks;
+    }
+
+    public List<Location> getLocations() {
+        return locations;
+    }
+
+    public List<Scatterable> getScatterables() {
+        return scatterables;
+    }
+
+    public PreparedChunks getChunks() {
+        return chunks;
+    }
+
+    public int size() {
+        return locations.size();
+    }
+}
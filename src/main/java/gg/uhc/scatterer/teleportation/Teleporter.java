@@ -2,105 +2,314 @@ package gg.uhc.scatterer.teleportation;
 
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListenableFuture;
 import gg.uhc.scatterer.Scatterable;
+import gg.uhc.scatterer.journal.ScatterJournal;
+import gg.uhc.scatterer.journal.ScatterPlan;
+import gg.uhc.scatterer.metrics.ScatterMetrics;
+import gg.uhc.scatterer.scheduling.AdaptiveSchedule;
+import gg.uhc.scatterer.scheduling.MainThreadExecutor;
+import gg.uhc.scatterer.scheduling.TickMonitor;
+import gg.uhc.scatterer.search.ColumnCacheStore;
+import gg.uhc.scatterer.search.MaterialTable;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.scheduler.BukkitRunnable;
 
-import java.util.LinkedList;
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
+// Runs one scatter job per world at the same time. A single task ticks every running job,
+// the teleports per tick are shared between them so parallel scatters don't add up to more
+// than one scatter would be allowed
 public class Teleporter {
 
     public interface Callback {
+        // after the set is teleported and timed, for anything that isn't the teleport itself
+        void onSetTeleported(List<Scatterable> scatterables, List<Location> locations);
         void onUpdate(int completed, int total);
         void onComplete();
+        void onFailure(Throwable cause);
     }
 
-    protected Optional<Callback> currentCallback = Optional.absent();
-    protected Optional<BukkitRunnable> teleportTask = Optional.absent();
-
-    protected LinkedList<List<Location>> locations;
-    protected LinkedList<List<Scatterable>> scatterables;
+    // running and searching jobs in the order they were started
+    protected final Map<World, ScatterJob> jobs = Maps.newLinkedHashMap();
 
-    // keep track of how many are done compared to total
-    protected int completed = 0;
-    protected int total = 0;
+    protected Optional<BukkitRunnable> teleportTask = Optional.absent();
 
     protected final Plugin plugin;
     protected final ChunkPreparer chunkPreparer;
+    protected final MainThreadExecutor mainThread;
+    protected final TickMonitor tickMonitor;
+    protected final int lookahead;
+    protected final double targetMspt;
+    protected final int teleportsPerTick;
+    protected final MaterialTable materials;
+    protected final Optional<ColumnCacheStore> columnCaches;
 
-    public Teleporter(ChunkPreparer chunkPreparer, Plugin plugin) {
+    public Teleporter(ChunkPreparer chunkPreparer, Plugin plugin, TickMonitor tickMonitor, int lookahead, double targetMspt, int teleportsPerTick, MaterialTable materials, Optional<ColumnCacheStore> columnCaches) {
+        Preconditions.checkArgument(lookahead >= 0);
+        Preconditions.checkArgument(targetMspt > 0);
+        Preconditions.checkArgument(teleportsPerTick > 0);
         this.chunkPreparer = chunkPreparer;
         this.plugin = plugin;
+        this.tickMonitor = tickMonitor;
+        this.lookahead = lookahead;
+        this.targetMspt = targetMspt;
+        this.teleportsPerTick = teleportsPerTick;
+        this.materials = materials;
+        this.columnCaches = columnCaches;
+        this.mainThread = new MainThreadExecutor(plugin);
     }
 
     public boolean isTeleporting() {
-        return teleportTask.isPresent();
+        return !jobs.isEmpty();
+    }
+
+    public boolean isTeleporting(World world) {
+        return jobs.containsKey(world);
+    }
+
+    public List<ScatterJob> getJobs() {
+        return ImmutableList.copyOf(jobs.values());
+    }
+
+    public ScatterJob teleport(final World world, final ListenableFuture<List<Location>> locations, final List<Scatterable> scatterables, int chunkSize, int ticksPer, boolean adaptive, boolean anyMaterial, int staggered, ScatterMetrics metrics, final Callback callback) {
+        Preconditions.checkArgument(scatterables.size() > 0);
+
+        final ScatterJob job = createJob(world, chunkSize, ticksPer, adaptive, anyMaterial, staggered, metrics, callback);
+        job.pendingLocations = Optional.of(locations);
+
+        // start teleporting as soon as the search has finished
+        locations.addListener(new Runnable() {
+            @Override
+            public void run() {
+                // cancelled and replaced by a newer job
+                if (jobs.get(world) != job) return;
+
+                try {
+                    startOrFail(job, locations.get(), scatterables);
+                } catch (CancellationException e) {
+                    jobs.remove(world);
+                    callback.onComplete();
+                } catch (ExecutionException e) {
+                    jobs.remove(world);
+                    callback.onFailure(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, mainThread);
+
+        return job;
+    }
+
+    // starts straight away and teleports locations as the search offers them to the job, the future
+    // completing only ends the stream. If the search fails the sets not yet teleported are dropped
+    public ScatterJob stream(final World world, final ListenableFuture<List<Location>> locations, final List<Scatterable> scatterables, int chunkSize, int ticksPer, boolean adaptive, boolean anyMaterial, int staggered, ScatterMetrics metrics, final Callback callback) {
+        Preconditions.checkArgument(scatterables.size() > 0);
+
+        final ScatterJob job = createJob(world, chunkSize, ticksPer, adaptive, anyMaterial, staggered, metrics, callback);
+        List<Location> none = ImmutableList.of();
+        job.streamEnded = false;
+        job.start(none, scatterables, createJournal(job, none, scatterables));
+        job.pendingLocations = Optional.of(locations);
+        ensureRunning();
+
+        locations.addListener(new Runnable() {
+            @Override
+            public void run() {
+                // cancelled and replaced by a newer job
+                if (jobs.get(world) != job) return;
+
+                job.pendingLocations = Optional.absent();
+
+                try {
+                    locations.get();
+                    job.endStream();
+                } catch (CancellationException e) {
+                    job.stop();
+                    finish(job);
+                } catch (ExecutionException e) {
+                    job.stop();
+                    jobs.remove(world);
+                    callback.onFailure(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, mainThread);
+
+        return job;
     }
 
-    public void teleport(List<Location> locations, List<Scatterable> scatterables, int chunkSize, int ticksPer, Callback callback) {
-        Preconditions.checkArgument(locations.size() == scatterables.size());
-        Preconditions.checkArgument(locations.size() > 0);
+    public ScatterJob teleport(World world, List<Location> locations, List<Scatterable> scatterables, int chunkSize, int ticksPer, boolean adaptive, boolean anyMaterial, int staggered, ScatterMetrics metrics, Callback callback) {
+        checkLocations(locations, scatterables);
+
+        ScatterJob job = createJob(world, chunkSize, ticksPer, adaptive, anyMaterial, staggered, metrics, callback);
+        startOrFail(job, locations, scatterables);
+        return job;
+    }
+
+    protected ScatterJob createJob(World world, int chunkSize, int ticksPer, boolean adaptive, boolean anyMaterial, int staggered, ScatterMetrics metrics, Callback callback) {
+        Preconditions.checkState(!isTeleporting(world), "There is already a scatter running in " + world.getName());
         Preconditions.checkArgument(chunkSize > 0);
         Preconditions.checkArgument(ticksPer > 0);
+        Preconditions.checkArgument(staggered >= 0);
+        Preconditions.checkNotNull(metrics);
         Preconditions.checkNotNull(callback);
 
-        currentCallback = Optional.of(callback);
-        this.total = locations.size();
+        // adaptive scatters start from the given values and tune them as sets complete
+        Optional<AdaptiveSchedule> schedule = adaptive
+                ? Optional.of(new AdaptiveSchedule(tickMonitor, targetMspt, chunkSize, ticksPer))
+                : Optional.<AdaptiveSchedule>absent();
 
-        this.locations = Lists.newLinkedList(Lists.partition(locations, chunkSize));
-        this.scatterables = Lists.newLinkedList(Lists.partition(scatterables, chunkSize));
+        ScatterJob job = new ScatterJob(world, chunkPreparer, tickMonitor, callback, metrics, chunkSize, ticksPer, lookahead, schedule);
+        job.setStaggeredMembers(staggered);
 
-        // stop chunk unloading during scatter
-        // is turned off on cancel
-        chunkPreparer.stopChunkUnload(true);
+        // new and resumed scatters check landing spots the same way, set before the journal records them
+        if (!anyMaterial) {
+            job.setMaterials(materials);
+        }
 
-        // start timer
-        BukkitRunnable task = new TeleportTask();
-        teleportTask = Optional.of(task);
-        task.runTaskTimer(plugin, 0, ticksPer);
+        if (columnCaches.isPresent()) {
+            job.setColumnCache(columnCaches.get().get(world));
+        }
+
+        jobs.put(world, job);
+        return job;
     }
 
-    public void cancelTeleport() {
-        if (!isTeleporting()) return;
+    protected void checkLocations(List<Location> locations, List<Scatterable> scatterables) {
+        // any extra locations are kept as spares
+        Preconditions.checkArgument(locations.size() >= scatterables.size());
+        Preconditions.checkArgument(scatterables.size() > 0);
+    }
 
-        teleportTask.get().cancel();
-        currentCallback.get().onComplete();
+    // a job that can't start is removed, otherwise its world would stay 'already scattering' until a restart
+    protected void startOrFail(ScatterJob job, List<Location> locations, List<Scatterable> scatterables) {
+        try {
+            start(job, locations, scatterables);
+        } catch (RuntimeException e) {
+            job.stop();
+            jobs.remove(job.getWorld());
+            job.callback.onFailure(e);
+        }
+    }
+
+    protected void start(ScatterJob job, List<Location> locations, List<Scatterable> scatterables) {
+        checkLocations(locations, scatterables);
+
+        // players/teams stay with their location, only the order they're teleported in changes
+        int count = scatterables.size();
+        List<Location> orderedLocations = Lists.newArrayListWithCapacity(locations.size());
+        List<Scatterable> orderedScatterables = Lists.newArrayListWithCapacity(count);
+        for (int index : HilbertOrder.order(locations.subList(0, count))) {
+            orderedLocations.add(locations.get(index));
+            orderedScatterables.add(scatterables.get(index));
+        }
+        orderedLocations.addAll(locations.subList(count, locations.size()));
 
-        teleportTask = Optional.absent();
-        currentCallback = Optional.absent();
-        locations = null;
-        scatterables = null;
-        completed = 0;
-        total = 0;
+        job.start(orderedLocations, orderedScatterables, createJournal(job, orderedLocations, orderedScatterables));
+        ensureRunning();
+    }
 
-        // make sure to allow chunk unloading again
-        chunkPreparer.stopChunkUnload(false);
+    protected void ensureRunning() {
+        // start timer if this is the only job, runs every tick and counts down the delays itself
+        if (!teleportTask.isPresent()) {
+            BukkitRunnable task = new TeleportTask();
+            teleportTask = Optional.of(task);
+            task.runTaskTimer(plugin, 0, 1);
+        }
+    }
+
+    // locations past the last scatterable are journaled as spares
+    protected Optional<ScatterJournal> createJournal(ScatterJob job, List<Location> locations, List<Scatterable> scatterables) {
+        ScatterMetrics metrics = job.metrics;
+        ScatterPlan plan = new ScatterPlan(job.getWorld().getName(), job.chunkSize, job.ticksPer, job.schedule.isPresent(), metrics.getSeed(), metrics.getStyle(), !job.materials.isPresent(), job.membersPerTick);
+
+        try {
+            return Optional.of(ScatterJournal.create(ScatterJournal.getFile(plugin.getDataFolder(), plan.getWorld()), plan, locations, scatterables));
+        } catch (IOException e) {
+            // the scatter can still run, it just can't be resumed
+            e.printStackTrace();
+            return Optional.absent();
+        }
+    }
+
+    // stops writing journals without removing them, running scatters can be resumed after the restart
+    public void shutdown() {
+        for (ScatterJob job : jobs.values()) {
+            job.closeJournal();
+        }
+    }
+
+    public void cancelTeleport(World world) {
+        ScatterJob job = jobs.get(world);
+
+        if (job == null) return;
+
+        // searching jobs are removed by the listener when it picks up the cancellation
+        if (job.stop()) {
+            finish(job);
+        }
+    }
+
+    // returns how many scatters were cancelled
+    public int cancelAll() {
+        List<World> worlds = Lists.newArrayList(jobs.keySet());
+
+        for (World world : worlds) {
+            cancelTeleport(world);
+        }
+
+        return worlds.size();
+    }
+
+    protected void finish(ScatterJob job) {
+        jobs.remove(job.getWorld());
+        job.callback.onComplete();
     }
 
     class TeleportTask extends BukkitRunnable {
+
+        // which job goes first this tick, rotates so no job always gets the budget first
+        protected int rotation = 0;
+
         @Override
         public void run() {
-            List<Location> loc = locations.pop();
-            List<Scatterable> scatter = scatterables.pop();
-
-            // load all of the chunks we are going to teleport players into
-            chunkPreparer.prepareLocations(loc);
+            List<ScatterJob> running = Lists.newArrayListWithCapacity(jobs.size());
+            for (ScatterJob job : jobs.values()) {
+                if (job.isRunning()) running.add(job);
+            }
 
-            // teleport each
-            for (int i = 0; i < loc.size(); i++) {
-                scatter.get(i).teleport(loc.get(i).add(0, 2, 0));
+            // only searching jobs left, they start the task again when they're ready
+            if (running.isEmpty()) {
+                cancel();
+                teleportTask = Optional.absent();
+                return;
             }
 
-            completed += loc.size();
+            rotation = (rotation + 1) % running.size();
 
-            currentCallback.get().onUpdate(completed, total);
+            int budget = teleportsPerTick;
+            ScatterJob job;
+            for (int i = 0; i < running.size(); i++) {
+                job = running.get((rotation + i) % running.size());
+                budget -= job.tick(budget);
 
-            // if we've ran out then cancel ourselves and cleanup
-            if (locations.size() == 0) {
-                cancelTeleport();
+                // if it's ran out then cleanup
+                if (job.isFinished()) {
+                    job.stop();
+                    finish(job);
+                }
             }
         }
     }